@@ -1,10 +1,14 @@
 package org.marakas73.common.cache;
 
+import jakarta.annotation.Nullable;
 import jakarta.annotation.PostConstruct;
+import org.marakas73.common.cache.codec.PathListRedisSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -12,7 +16,10 @@ import java.util.regex.Pattern;
 public class CacheSizeEvaluator {
     private static final Pattern SIZE_PATTERN = Pattern.compile("(\\d+)([kKmMgG][bB]?)");
 
-    private final GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+    // Same serializer as cache values use
+    private final PathListRedisSerializer serializer = new PathListRedisSerializer(
+            new GenericJackson2JsonRedisSerializer()
+    );
 
     @Value("${spring.redis.maxmemory}")
     private String maxMemoryProperty;
@@ -25,14 +32,58 @@ public class CacheSizeEvaluator {
     }
 
     public boolean isTooBig(Object value) {
+        return serializeWithinLimit(value) == null;
+    }
+
+    /**
+     * Serializes value once, so its bytes can be measured and written to cache without serializing it again.
+     *
+     * @return value with its serialized bytes or {@code null} if value is too big or can't be serialized.
+     */
+    @Nullable
+    public SerializedCacheValue serializeWithinLimit(Object value) {
+        // Path lists are compressed, so their estimate is not a lower bound of serialized size
+        if (!PathListRedisSerializer.isPathList(value) && estimateSize(value) > maxBytes) {
+            return null;
+        }
+
         try {
-            byte[] bytes = serializer.serialize(value);
-            return bytes != null && bytes.length > maxBytes;
+            byte[] bytes = serializer.serialize(value, maxBytes);
+            return bytes != null ? new SerializedCacheValue(value, bytes) : null;
         } catch (Exception e) {
-            return true;
+            return null;
         }
     }
 
+    /**
+     * Cheap estimate of value size without serialization, it's close to JSON size of value.
+     */
+    public long estimateSize(Object value) {
+        return switch (value) {
+            case null -> 4;
+            case SerializedCacheValue serialized -> serialized.bytes().length;
+            case CharSequence chars -> chars.length() + 2L;
+            case Number number -> 8;
+            case Boolean bool -> 5;
+            case Collection<?> collection -> {
+                long size = 2;
+                for (Object element : collection) {
+                    size += estimateSize(element) + 1;
+                }
+                yield size;
+            }
+            case Map<?, ?> map -> {
+                long size = 2;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    size += estimateSize(entry.getKey()) + estimateSize(entry.getValue()) + 2;
+                }
+                yield size;
+            }
+            // Small records like cache manifests
+            default -> 64;
+        };
+    }
+
     private long parseMemorySize(String value) {
         String trimmed = value.trim().toLowerCase();
         Matcher matcher = SIZE_PATTERN.matcher(trimmed);
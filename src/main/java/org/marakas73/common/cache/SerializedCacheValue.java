@@ -0,0 +1,11 @@
+package org.marakas73.common.cache;
+
+/**
+ * Cache value which is already serialized, cache value serializer writes its bytes as they are.
+ * Original value is kept for caches which store values without serialization.
+ */
+public record SerializedCacheValue(
+        Object value,
+        byte[] bytes
+) {
+}
@@ -0,0 +1,142 @@
+package org.marakas73.common.cache;
+
+import jakarta.annotation.Nullable;
+import org.marakas73.common.cache.codec.CompactPathList;
+import org.marakas73.common.cache.codec.PathListCodec;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache with in-process L1 store in front of optional L2 cache.
+ * Writes go through both tiers, reads populate L1 from L2. Values read from L2 are kept in L1
+ * only for a short TTL, remaining TTL of L2 value is unknown and L1 copy must not outlive it much.
+ * Without L2 cache it works as local only cache.
+ */
+public class TwoTierCache implements Cache {
+    private final String name;
+    private final WeightedLruStore l1;
+    @Nullable
+    private final Cache l2;
+    private final ToLongFunction<Object> weigher;
+    private final long readTtlMillis;
+
+    TwoTierCache(
+            String name,
+            WeightedLruStore l1,
+            @Nullable Cache l2,
+            ToLongFunction<Object> weigher,
+            long readTtlMillis
+    ) {
+        this.name = name;
+        this.l1 = l1;
+        this.l2 = l2;
+        this.weigher = weigher;
+        this.readTtlMillis = readTtlMillis;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l2 != null ? l2.getNativeCache() : l1;
+    }
+
+    @Override
+    @Nullable
+    public ValueWrapper get(Object key) {
+        WeightedLruStore.Entry entry = l1.get(name, key);
+        if (entry != null) {
+            return new SimpleValueWrapper(entry.value());
+        }
+        if (l2 == null) {
+            return null;
+        }
+
+        ValueWrapper wrapper = l2.get(key);
+        if (wrapper != null) {
+            Object value = wrapper.get();
+            l1.put(name, key, value, weigh(value), readTtlMillis);
+        }
+        return wrapper;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, @Nullable Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, @Nullable Object value) {
+        // L2 is written first, so L1 never has values which failed to be stored
+        if (l2 != null) {
+            l2.put(key, value);
+        }
+
+        if (value instanceof SerializedCacheValue serialized) {
+            if (PathListCodec.isEncoded(serialized.bytes())) {
+                // Keep path lists in compact form, like they are read from L2
+                CompactPathList paths = PathListCodec.decode(serialized.bytes());
+                l1.put(name, key, paths, paths.encodedSize());
+            } else {
+                l1.put(name, key, serialized.value(), serialized.bytes().length);
+            }
+        } else {
+            l1.put(name, key, value, weigh(value));
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        if (l2 != null) {
+            l2.evict(key);
+        }
+        l1.remove(name, key);
+    }
+
+    @Override
+    public void clear() {
+        if (l2 != null) {
+            l2.clear();
+        }
+        l1.clear(name);
+    }
+
+    private long weigh(@Nullable Object value) {
+        if (value instanceof CompactPathList paths) {
+            return paths.encodedSize();
+        }
+        return weigher.applyAsLong(value);
+    }
+}
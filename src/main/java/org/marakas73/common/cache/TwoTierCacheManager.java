@@ -0,0 +1,67 @@
+package org.marakas73.common.cache;
+
+import jakarta.annotation.Nullable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache manager which puts one in-process L1 store bounded by weight in front of all caches of L2 manager.
+ * Without L2 manager all caches are local only.
+ */
+public class TwoTierCacheManager implements CacheManager {
+    @Nullable
+    private final CacheManager l2CacheManager;
+    private final WeightedLruStore l1;
+    private final ToLongFunction<Object> weigher;
+    private final long readTtlMillis;
+
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxWeight max total weight of L1 values, values are weighed by their serialized size.
+     * @param ttlMillis TTL of L1 values since write, should be the same as L2 one.
+     * @param readTtlMillis TTL of L1 copies of values read from L2, L1 copy outlives L2 value at most by it.
+     */
+    public TwoTierCacheManager(
+            @Nullable CacheManager l2CacheManager,
+            long maxWeight,
+            long ttlMillis,
+            long readTtlMillis,
+            ToLongFunction<Object> weigher
+    ) {
+        this.l2CacheManager = l2CacheManager;
+        this.l1 = new WeightedLruStore(maxWeight, ttlMillis);
+        this.readTtlMillis = readTtlMillis;
+        this.weigher = weigher;
+    }
+
+    @Override
+    @Nullable
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, cacheName -> {
+            Cache l2 = null;
+            if (l2CacheManager != null) {
+                l2 = l2CacheManager.getCache(cacheName);
+                if (l2 == null) {
+                    return null;
+                }
+            }
+            return new TwoTierCache(cacheName, l1, l2, weigher, readTtlMillis);
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    public long getL1Weight() {
+        return l1.getTotalWeight();
+    }
+}
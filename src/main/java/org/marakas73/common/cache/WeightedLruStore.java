@@ -0,0 +1,113 @@
+package org.marakas73.common.cache;
+
+import jakarta.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-process LRU store bounded by total weight of its values, entries expire after TTL since write.
+ * Shared by all caches of {@link TwoTierCacheManager}.
+ */
+class WeightedLruStore {
+    private final long maxWeight;
+    private final long ttlMillis;
+
+    // Access ordered map, eldest entry is the least recently used one
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalWeight;
+
+    WeightedLruStore(long maxWeight, long ttlMillis) {
+        this.maxWeight = maxWeight;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return stored entry or {@code null} if there is no entry or it's expired.
+     */
+    @Nullable
+    synchronized Entry get(String cacheName, Object key) {
+        Key entryKey = new Key(cacheName, key);
+        Entry entry = entries.get(entryKey);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            remove(entryKey);
+            return null;
+        }
+        return entry;
+    }
+
+    synchronized void put(String cacheName, Object key, @Nullable Object value, long weight) {
+        put(cacheName, key, value, weight, ttlMillis);
+    }
+
+    /**
+     * @param ttlMillis TTL of the entry, it's never longer than the store TTL.
+     */
+    synchronized void put(String cacheName, Object key, @Nullable Object value, long weight, long ttlMillis) {
+        Key entryKey = new Key(cacheName, key);
+        remove(entryKey);
+        if (weight > maxWeight) {
+            // Value would evict everything else
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        entries.put(entryKey, new Entry(value, weight, now + Math.min(ttlMillis, this.ttlMillis)));
+        totalWeight += weight;
+        evict(now);
+    }
+
+    synchronized void remove(String cacheName, Object key) {
+        remove(new Key(cacheName, key));
+    }
+
+    synchronized void clear(String cacheName) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> next = iterator.next();
+            if (next.getKey().cacheName().equals(cacheName)) {
+                totalWeight -= next.getValue().weight();
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized long getTotalWeight() {
+        return totalWeight;
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight();
+        }
+    }
+
+    private void evict(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            // Drop least recently used entries while over the limit and expired ones at the head anyway
+            if (totalWeight <= maxWeight && !eldest.isExpired(now)) {
+                break;
+            }
+            totalWeight -= eldest.weight();
+            iterator.remove();
+        }
+    }
+
+    private record Key(String cacheName, Object key) {
+        private Key {
+            Objects.requireNonNull(cacheName);
+            Objects.requireNonNull(key);
+        }
+    }
+
+    record Entry(@Nullable Object value, long weight, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+}
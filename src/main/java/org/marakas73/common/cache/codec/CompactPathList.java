@@ -0,0 +1,60 @@
+package org.marakas73.common.cache.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of front coded paths produced by {@link PathListCodec}.
+ * Entry is decoded from the nearest fully stored one on each access.
+ */
+public final class CompactPathList extends AbstractList<String> implements RandomAccess {
+    private final byte[] payload;
+    private final int count;
+    private final int maxLength;
+    private final int[] positions;
+    private final int[] restarts;
+
+    CompactPathList(byte[] payload, int count, int maxLength, int[] positions, int[] restarts) {
+        this.payload = payload;
+        this.count = count;
+        this.maxLength = maxLength;
+        this.positions = positions;
+        this.restarts = restarts;
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + count);
+        }
+
+        int sorted = positions != null ? positions[index] : index;
+        int first = sorted - sorted % PathListCodec.RESTART_INTERVAL;
+        int[] cursor = {restarts[first / PathListCodec.RESTART_INTERVAL]};
+
+        // Apply entries of the restart block until the requested one
+        byte[] entry = new byte[maxLength];
+        int length = 0;
+        for (int current = first; current <= sorted; current++) {
+            int shared = PathListCodec.readVarInt(payload, cursor);
+            int suffixLength = PathListCodec.readVarInt(payload, cursor);
+            System.arraycopy(payload, cursor[0], entry, shared, suffixLength);
+            cursor[0] += suffixLength;
+            length = shared + suffixLength;
+        }
+        return new String(entry, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return size of encoded entries in bytes.
+     */
+    public int encodedSize() {
+        return payload.length;
+    }
+}
@@ -0,0 +1,275 @@
+package org.marakas73.common.cache.codec;
+
+import jakarta.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary codec for lists of file paths.
+ * Paths are sorted by their UTF-8 bytes and front coded: each entry stores only length of prefix
+ * shared with previous entry and the rest bytes. Every {@value #RESTART_INTERVAL}-th entry is stored in full,
+ * so any entry can be decoded without decoding the whole list.
+ * Original order is kept by storing sorted position of each entry when list is not sorted.
+ * <p>
+ * Layout: {@code magic[4] flags payload}, where payload is
+ * {@code varint count, varint maxLength, [varint position * count], (varint shared, varint suffixLength, suffix) * count}
+ * and it's deflated when {@link #FLAG_DEFLATED} is set.
+ */
+public final class PathListCodec {
+    private static final byte[] MAGIC = {0, 'P', 'L', 1};
+
+    static final int RESTART_INTERVAL = 16;
+
+    private static final int FLAG_DEFLATED = 1;
+    private static final int FLAG_PERMUTED = 1 << 1;
+
+    // Small payloads are not worth compression
+    private static final int DEFLATE_THRESHOLD = 512;
+    private static final int DEFLATE_BUFFER_SIZE = 8192;
+
+    private PathListCodec() {
+    }
+
+    public static boolean isEncoded(byte[] bytes) {
+        if (bytes == null || bytes.length < MAGIC.length + 1) {
+            return false;
+        }
+        return Arrays.equals(bytes, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    public static byte[] encode(List<String> paths) {
+        return encode(paths, true, Integer.MAX_VALUE);
+    }
+
+    public static byte[] encode(List<String> paths, boolean deflate) {
+        return encode(paths, deflate, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Encodes paths in a single pass, encoding is aborted as soon as output exceeds the limit.
+     *
+     * @param deflate whether payload can be compressed, uncompressed payload is faster to read.
+     * @return encoded paths or {@code null} if encoded paths are bigger than {@code maxBytes}.
+     */
+    @Nullable
+    public static byte[] encode(List<String> paths, boolean deflate, long maxBytes) {
+        int count = paths.size();
+        byte[][] entries = new byte[count][];
+        Integer[] order = new Integer[count];
+        int maxLength = 0;
+        long rawLength = 0;
+        for (int i = 0; i < count; i++) {
+            entries[i] = paths.get(i).getBytes(StandardCharsets.UTF_8);
+            order[i] = i;
+            maxLength = Math.max(maxLength, entries[i].length);
+            rawLength += entries[i].length;
+        }
+        // Stable sort keeps equal paths in their original order
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(entries[a], entries[b]));
+
+        boolean permuted = false;
+        for (int i = 0; i < count && !permuted; i++) {
+            permuted = order[i] != i;
+        }
+        boolean deflated = deflate && rawLength >= DEFLATE_THRESHOLD;
+
+        // Front coded paths are usually several times smaller than raw ones, deflated even more
+        BoundedOutputStream out = new BoundedOutputStream(
+                (int) Math.min(maxBytes, Math.max(64, deflated ? rawLength / 8 : rawLength / 2)),
+                maxBytes
+        );
+        try {
+            out.write(MAGIC);
+            out.write((permuted ? FLAG_PERMUTED : 0) | (deflated ? FLAG_DEFLATED : 0));
+
+            Deflater deflater = deflated ? new Deflater(Deflater.BEST_SPEED) : null;
+            try {
+                // Varints are written by single bytes, so deflater input is buffered
+                OutputStream payload = deflated
+                        ? new BufferedOutputStream(
+                                new DeflaterOutputStream(out, deflater, DEFLATE_BUFFER_SIZE), DEFLATE_BUFFER_SIZE
+                        )
+                        : out;
+                writePayload(payload, entries, order, maxLength, permuted);
+                payload.close();
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        } catch (LimitExceededException e) {
+            return null;
+        } catch (IOException e) {
+            // Output is in memory
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writePayload(
+            OutputStream payload,
+            byte[][] entries,
+            Integer[] order,
+            int maxLength,
+            boolean permuted
+    ) throws IOException {
+        int count = entries.length;
+        writeVarInt(payload, count);
+        writeVarInt(payload, maxLength);
+        if (permuted) {
+            int[] positions = new int[count];
+            for (int sorted = 0; sorted < count; sorted++) {
+                positions[order[sorted]] = sorted;
+            }
+            for (int position : positions) {
+                writeVarInt(payload, position);
+            }
+        }
+
+        byte[] previous = new byte[0];
+        for (int sorted = 0; sorted < count; sorted++) {
+            byte[] entry = entries[order[sorted]];
+            int shared = sorted % RESTART_INTERVAL == 0 ? 0 : Arrays.mismatch(previous, entry);
+            if (shared < 0) {
+                // Same entries
+                shared = entry.length;
+            }
+            writeVarInt(payload, shared);
+            writeVarInt(payload, entry.length - shared);
+            payload.write(entry, shared, entry.length - shared);
+            previous = entry;
+        }
+    }
+
+    /**
+     * @return random access view over encoded paths, entries are decoded on access.
+     */
+    public static CompactPathList decode(byte[] bytes) {
+        if (!isEncoded(bytes)) {
+            throw new IllegalArgumentException("Bytes are not encoded path list");
+        }
+
+        int flags = bytes[MAGIC.length];
+        int[] cursor = {MAGIC.length + 1};
+        byte[] payload;
+        if ((flags & FLAG_DEFLATED) != 0) {
+            payload = inflate(bytes, cursor[0]);
+            cursor[0] = 0;
+        } else {
+            payload = bytes;
+        }
+
+        int count = readVarInt(payload, cursor);
+        int maxLength = readVarInt(payload, cursor);
+        int[] positions = null;
+        if ((flags & FLAG_PERMUTED) != 0) {
+            positions = new int[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = readVarInt(payload, cursor);
+            }
+        }
+
+        // Find offsets of fully stored entries to decode any entry from the nearest one
+        int[] restarts = new int[(count + RESTART_INTERVAL - 1) / RESTART_INTERVAL];
+        for (int sorted = 0; sorted < count; sorted++) {
+            if (sorted % RESTART_INTERVAL == 0) {
+                restarts[sorted / RESTART_INTERVAL] = cursor[0];
+            }
+            readVarInt(payload, cursor);
+            int suffixLength = readVarInt(payload, cursor);
+            cursor[0] += suffixLength;
+        }
+
+        return new CompactPathList(payload, count, maxLength, positions, restarts);
+    }
+
+    static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarInt(byte[] bytes, int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = bytes[cursor[0]++];
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset) {
+        try (var in = new InflaterInputStream(new ByteArrayInputStream(bytes, offset, bytes.length - offset))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Encoded path list is corrupted", e);
+        }
+    }
+
+    private static final class LimitExceededException extends IOException {
+        private LimitExceededException() {
+            super("Encoded path list size limit exceeded");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // Thrown in a normal flow, so stack trace is not needed
+            return this;
+        }
+    }
+
+    /**
+     * Growing in-memory output which fails as soon as its size exceeds the limit.
+     */
+    private static final class BoundedOutputStream extends OutputStream {
+        private final long limit;
+        private byte[] buffer;
+        private int size;
+
+        private BoundedOutputStream(int initialCapacity, long limit) {
+            this.buffer = new byte[Math.max(16, initialCapacity)];
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureCapacity(size + 1);
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureCapacity(size + len);
+            System.arraycopy(b, off, buffer, size, len);
+            size += len;
+        }
+
+        private void ensureCapacity(long capacity) throws IOException {
+            if (capacity > limit) {
+                throw new LimitExceededException();
+            }
+            if (capacity > buffer.length) {
+                long grown = Math.max(capacity, (long) buffer.length * 2);
+                buffer = Arrays.copyOf(buffer, (int) Math.min(grown, Math.min(limit, Integer.MAX_VALUE - 8)));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.marakas73.common.cache.codec;
+
+import jakarta.annotation.Nullable;
+import org.marakas73.common.cache.SerializedCacheValue;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.List;
+
+/**
+ * Serializes lists of paths with {@link PathListCodec} and all other values with delegate serializer.
+ * Encoded lists start with bytes which can't start JSON, so both formats are told apart on read.
+ * {@link SerializedCacheValue} bytes are written as they are.
+ */
+public class PathListRedisSerializer implements RedisSerializer<Object> {
+    private final RedisSerializer<Object> delegate;
+
+    public PathListRedisSerializer(RedisSerializer<Object> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value instanceof SerializedCacheValue serialized) {
+            return serialized.bytes();
+        }
+        return serialize(value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Path lists encoding is aborted as soon as its output exceeds the limit,
+     * other values are small and checked after serialization.
+     *
+     * @return serialized value or {@code null} if it's bigger than {@code maxBytes}.
+     */
+    @Nullable
+    public byte[] serialize(Object value, long maxBytes) throws SerializationException {
+        if (isPathList(value)) {
+            @SuppressWarnings("unchecked")
+            List<String> paths = (List<String>) value;
+            return PathListCodec.encode(paths, true, maxBytes);
+        }
+
+        byte[] bytes = delegate.serialize(value);
+        return bytes != null && bytes.length > maxBytes ? null : bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (PathListCodec.isEncoded(bytes)) {
+            try {
+                return PathListCodec.decode(bytes);
+            } catch (RuntimeException e) {
+                throw new SerializationException("Failed to decode path list", e);
+            }
+        }
+        return delegate.deserialize(bytes);
+    }
+
+    public static boolean isPathList(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return false;
+        }
+        for (Object element : list) {
+            if (!(element instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
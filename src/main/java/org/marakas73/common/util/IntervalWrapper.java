@@ -7,6 +7,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.annotation.Nullable;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 
 @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, property = "@class")
@@ -37,4 +38,25 @@ public class IntervalWrapper<T> implements Serializable {
     public T getEnd() {
         return end;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj == null || obj.getClass() != this.getClass()) return false;
+        var that = (IntervalWrapper<?>) obj;
+        return Objects.equals(this.start, that.start) &&
+                Objects.equals(this.end, that.end);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return "IntervalWrapper[" +
+                "start=" + start + ", " +
+                "end=" + end + ']';
+    }
 }
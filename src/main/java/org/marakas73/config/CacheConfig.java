@@ -0,0 +1,47 @@
+package org.marakas73.config;
+
+import org.marakas73.common.cache.CacheSizeEvaluator;
+import org.marakas73.common.cache.TwoTierCacheManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    private final long cacheTtl;
+    private final long l1MaxSize;
+    private final long l1ReadTtl;
+
+    public CacheConfig(
+            @Value("${spring.redis.cache.time-to-live}") long cacheTtl,
+            FileScannerProperties properties
+    ) {
+        this.cacheTtl = cacheTtl;
+        this.l1MaxSize = properties.getCacheL1MaxSize();
+        this.l1ReadTtl = properties.getCacheL1ReadTtl();
+    }
+
+    @Bean
+    @Primary
+    public CacheManager cacheManager(
+            // Absent when Redis is disabled, caches are local only then
+            @Qualifier("redisCacheManager") ObjectProvider<CacheManager> redisCacheManager,
+            CacheSizeEvaluator cacheSizeEvaluator
+    ) {
+        return new TwoTierCacheManager(
+                redisCacheManager.getIfAvailable(),
+                l1MaxSize,
+                Duration.ofSeconds(cacheTtl).toMillis(),
+                Duration.ofSeconds(l1ReadTtl).toMillis(),
+                cacheSizeEvaluator::estimateSize
+        );
+    }
+}
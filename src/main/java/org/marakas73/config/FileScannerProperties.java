@@ -7,15 +7,59 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "scanner")
 public class FileScannerProperties {
     private int threadsCount;
-    private long streamFileSizeLimit;
+    private int poolSize;
+    private int virtualThreadsMaxInFlightIo;
+    private int pipelineWalkerThreads;
+    private int pipelineMetadataThreads;
+    private int pipelineContentThreads;
+    private int pipelineQueueCapacity;
+    private int contentBufferSize;
+    private long contentMapThreshold;
     private long maxActiveScans;
     private long bufferedResultTtl;
+    private long streamInterval;
+    private int streamBatchSize;
+    private int cacheChunkSize;
+    private long cacheL1MaxSize;
+    private long cacheL1ReadTtl;
+    private String indexDirectory;
+    private long indexMaxAge;
+    private long indexRefreshInterval;
+    private int indexSegmentSize;
+    private String snapshotDirectory;
+    private long snapshotMaxAge;
+    private int snapshotMaxEntries;
+    private int liveMaxRegistrations;
+    private long liveRescanInterval;
+    private long resultMemoryBudget;
+    private String spillDirectory;
 
     public int getThreadsCount() {
         return this.threadsCount;
     }
-    public long getStreamFileSizeLimit() {
-        return this.streamFileSizeLimit;
+    public int getPoolSize() {
+        return this.poolSize;
+    }
+    public int getVirtualThreadsMaxInFlightIo() {
+        return this.virtualThreadsMaxInFlightIo;
+    }
+    public int getPipelineWalkerThreads() {
+        return this.pipelineWalkerThreads;
+    }
+    public int getPipelineMetadataThreads() {
+        return this.pipelineMetadataThreads;
+    }
+    public int getPipelineContentThreads() {
+        return this.pipelineContentThreads;
+    }
+    public int getPipelineQueueCapacity() {
+        return this.pipelineQueueCapacity;
+    }
+    public int getContentBufferSize() {
+        return this.contentBufferSize;
+    }
+    public long getContentMapThreshold() {
+        return this.contentMapThreshold;
     }
     public long getMaxActiveScans() {
         return maxActiveScans;
@@ -23,6 +67,54 @@ public class FileScannerProperties {
     public long getBufferedResultTtl() {
         return bufferedResultTtl;
     }
+    public long getStreamInterval() {
+        return streamInterval;
+    }
+    public int getStreamBatchSize() {
+        return streamBatchSize;
+    }
+    public int getCacheChunkSize() {
+        return cacheChunkSize;
+    }
+    public long getCacheL1MaxSize() {
+        return cacheL1MaxSize;
+    }
+    public long getCacheL1ReadTtl() {
+        return cacheL1ReadTtl;
+    }
+    public String getIndexDirectory() {
+        return indexDirectory;
+    }
+    public long getIndexMaxAge() {
+        return indexMaxAge;
+    }
+    public long getIndexRefreshInterval() {
+        return indexRefreshInterval;
+    }
+    public int getIndexSegmentSize() {
+        return indexSegmentSize;
+    }
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+    public long getSnapshotMaxAge() {
+        return snapshotMaxAge;
+    }
+    public int getSnapshotMaxEntries() {
+        return snapshotMaxEntries;
+    }
+    public int getLiveMaxRegistrations() {
+        return liveMaxRegistrations;
+    }
+    public long getLiveRescanInterval() {
+        return liveRescanInterval;
+    }
+    public long getResultMemoryBudget() {
+        return resultMemoryBudget;
+    }
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
 
     public void setThreadsCount(int threadsCount) {
         if(threadsCount <= 0) {
@@ -34,16 +126,64 @@ public class FileScannerProperties {
 
         this.threadsCount = threadsCount;
     }
-    public void setStreamFileSizeLimit(long streamFileSizeLimit) {
-        long freeMemory = Runtime.getRuntime().freeMemory();
-        // Approximately safe memory with think of UTF-16 and overhead
-        long safeFileSize = (freeMemory / 3);
+    public void setPoolSize(int poolSize) {
+        if(poolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be more than 0");
+        }
+        if (poolSize > Runtime.getRuntime().availableProcessors() * 4) {
+            throw new IllegalArgumentException("Pool size number way too big: " + poolSize);
+        }
+
+        this.poolSize = poolSize;
+    }
+    public void setVirtualThreadsMaxInFlightIo(int virtualThreadsMaxInFlightIo) {
+        if(virtualThreadsMaxInFlightIo <= 0) {
+            throw new IllegalArgumentException("Virtual threads max in-flight IO count must be more than 0");
+        }
+
+        this.virtualThreadsMaxInFlightIo = virtualThreadsMaxInFlightIo;
+    }
+    public void setPipelineWalkerThreads(int pipelineWalkerThreads) {
+        if(pipelineWalkerThreads <= 0) {
+            throw new IllegalArgumentException("Pipeline walker threads count must be more than 0");
+        }
+
+        this.pipelineWalkerThreads = pipelineWalkerThreads;
+    }
+    public void setPipelineMetadataThreads(int pipelineMetadataThreads) {
+        if(pipelineMetadataThreads <= 0) {
+            throw new IllegalArgumentException("Pipeline metadata threads count must be more than 0");
+        }
 
-        if(streamFileSizeLimit > safeFileSize) {
-            throw new IllegalArgumentException("Stream file size limit more than allowed space in memory");
+        this.pipelineMetadataThreads = pipelineMetadataThreads;
+    }
+    public void setPipelineContentThreads(int pipelineContentThreads) {
+        if(pipelineContentThreads <= 0) {
+            throw new IllegalArgumentException("Pipeline content threads count must be more than 0");
         }
 
-        this.streamFileSizeLimit = streamFileSizeLimit;
+        this.pipelineContentThreads = pipelineContentThreads;
+    }
+    public void setPipelineQueueCapacity(int pipelineQueueCapacity) {
+        if(pipelineQueueCapacity <= 0) {
+            throw new IllegalArgumentException("Pipeline queue capacity must be more than 0");
+        }
+
+        this.pipelineQueueCapacity = pipelineQueueCapacity;
+    }
+    public void setContentBufferSize(int contentBufferSize) {
+        if(contentBufferSize < 1024) {
+            throw new IllegalArgumentException("Content buffer size must be at least 1024 bytes");
+        }
+
+        this.contentBufferSize = contentBufferSize;
+    }
+    public void setContentMapThreshold(long contentMapThreshold) {
+        if(contentMapThreshold < 0) {
+            throw new IllegalArgumentException("Content map threshold must not be negative");
+        }
+
+        this.contentMapThreshold = contentMapThreshold;
     }
     public void setMaxActiveScans(long maxActiveScans) {
         if(maxActiveScans <= 0) {
@@ -59,4 +199,116 @@ public class FileScannerProperties {
 
         this.bufferedResultTtl = bufferedResultTtl;
     }
+    public void setStreamInterval(long streamInterval) {
+        if(streamInterval <= 0) {
+            throw new IllegalArgumentException("Stream interval must be more than 0");
+        }
+
+        this.streamInterval = streamInterval;
+    }
+    public void setStreamBatchSize(int streamBatchSize) {
+        if(streamBatchSize <= 0) {
+            throw new IllegalArgumentException("Stream batch size must be more than 0");
+        }
+
+        this.streamBatchSize = streamBatchSize;
+    }
+    public void setCacheChunkSize(int cacheChunkSize) {
+        if(cacheChunkSize <= 0) {
+            throw new IllegalArgumentException("Cache chunk size must be more than 0");
+        }
+
+        this.cacheChunkSize = cacheChunkSize;
+    }
+    public void setCacheL1MaxSize(long cacheL1MaxSize) {
+        if(cacheL1MaxSize < 0) {
+            throw new IllegalArgumentException("Cache L1 max size must not be negative");
+        }
+
+        this.cacheL1MaxSize = cacheL1MaxSize;
+    }
+    public void setCacheL1ReadTtl(long cacheL1ReadTtl) {
+        if(cacheL1ReadTtl <= 0) {
+            throw new IllegalArgumentException("Cache L1 read TTL must be more than 0");
+        }
+
+        this.cacheL1ReadTtl = cacheL1ReadTtl;
+    }
+    public void setIndexDirectory(String indexDirectory) {
+        if(indexDirectory == null || indexDirectory.isBlank()) {
+            throw new IllegalArgumentException("Index directory must not be blank");
+        }
+
+        this.indexDirectory = indexDirectory;
+    }
+    public void setIndexMaxAge(long indexMaxAge) {
+        if(indexMaxAge <= 0) {
+            throw new IllegalArgumentException("Index max age must be more than 0");
+        }
+
+        this.indexMaxAge = indexMaxAge;
+    }
+    public void setIndexRefreshInterval(long indexRefreshInterval) {
+        if(indexRefreshInterval <= 0) {
+            throw new IllegalArgumentException("Index refresh interval must be more than 0");
+        }
+
+        this.indexRefreshInterval = indexRefreshInterval;
+    }
+    public void setIndexSegmentSize(int indexSegmentSize) {
+        if(indexSegmentSize <= 0) {
+            throw new IllegalArgumentException("Index segment size must be more than 0");
+        }
+
+        this.indexSegmentSize = indexSegmentSize;
+    }
+    public void setSnapshotDirectory(String snapshotDirectory) {
+        if(snapshotDirectory == null || snapshotDirectory.isBlank()) {
+            throw new IllegalArgumentException("Snapshot directory must not be blank");
+        }
+
+        this.snapshotDirectory = snapshotDirectory;
+    }
+    public void setSnapshotMaxAge(long snapshotMaxAge) {
+        if(snapshotMaxAge <= 0) {
+            throw new IllegalArgumentException("Snapshot max age must be more than 0");
+        }
+
+        this.snapshotMaxAge = snapshotMaxAge;
+    }
+    public void setSnapshotMaxEntries(int snapshotMaxEntries) {
+        if(snapshotMaxEntries < 0) {
+            throw new IllegalArgumentException("Snapshot max entries count must be non-negative");
+        }
+
+        this.snapshotMaxEntries = snapshotMaxEntries;
+    }
+    public void setLiveMaxRegistrations(int liveMaxRegistrations) {
+        if(liveMaxRegistrations < 0) {
+            throw new IllegalArgumentException("Live max registrations count must not be negative");
+        }
+
+        this.liveMaxRegistrations = liveMaxRegistrations;
+    }
+    public void setLiveRescanInterval(long liveRescanInterval) {
+        if(liveRescanInterval <= 0) {
+            throw new IllegalArgumentException("Live rescan interval must be more than 0");
+        }
+
+        this.liveRescanInterval = liveRescanInterval;
+    }
+    public void setResultMemoryBudget(long resultMemoryBudget) {
+        if(resultMemoryBudget < 0) {
+            throw new IllegalArgumentException("Result memory budget must not be negative");
+        }
+
+        this.resultMemoryBudget = resultMemoryBudget;
+    }
+    public void setSpillDirectory(String spillDirectory) {
+        if(spillDirectory == null || spillDirectory.isBlank()) {
+            throw new IllegalArgumentException("Spill directory must not be blank");
+        }
+
+        this.spillDirectory = spillDirectory;
+    }
 }
@@ -1,8 +1,9 @@
 package org.marakas73.config;
 
+import org.marakas73.common.cache.codec.PathListRedisSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
-import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -20,7 +21,7 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 import java.time.Duration;
 
 @Configuration
-@EnableCaching
+@ConditionalOnProperty(name = "scanner.redis-enabled", havingValue = "true", matchIfMissing = true)
 public class RedisConfig {
     private final RedisProperties redisProperties;
     private final long cacheTtl;
@@ -49,15 +50,19 @@ public class RedisConfig {
         return new LettuceConnectionFactory(config);
     }
 
+    // Used as L2 of the primary cache manager
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory factory) {
+    public RedisCacheManager redisCacheManager(RedisConnectionFactory factory) {
         // Apply Redis memory configurations
         setRedisConfigurations(factory);
 
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofSeconds(cacheTtl))
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                        // Result chunks are stored in compact binary form, other values as JSON
+                        new PathListRedisSerializer(new GenericJackson2JsonRedisSerializer())
+                ));
         return RedisCacheManager.builder(factory)
                 .cacheDefaults(config)
                 .build();
@@ -7,16 +7,22 @@ import jakarta.validation.Valid;
 import org.marakas73.controller.filescanner.dto.response.FileScanResponseDto;
 import org.marakas73.controller.filescanner.dto.response.ResponseWrapper;
 import org.marakas73.controller.filescanner.mapper.FileScanRequestMapper;
+import org.marakas73.controller.filescanner.dto.request.FileScanBatchRequestDto;
 import org.marakas73.controller.filescanner.dto.request.FileScanRequestDto;
 import org.marakas73.controller.filescanner.dto.response.ResponseStatus;
 import org.marakas73.controller.filescanner.mapper.FileScanResultMapper;
+import org.marakas73.controller.filescanner.stream.FileScanEventStreamer;
+import org.marakas73.model.FileScanBatchRequest;
 import org.marakas73.model.FileScanRequest;
 import org.marakas73.model.FileScanResult;
 import org.marakas73.service.filescanner.FileScanner;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -26,15 +32,18 @@ public class FileScannerHttpController {
     private final FileScanner fileScanner;
     private final FileScanRequestMapper fileScanRequestMapper;
     private final FileScanResultMapper fileScanResultMapper;
+    private final FileScanEventStreamer fileScanEventStreamer;
 
     public FileScannerHttpController(
             FileScanner fileScanner,
             FileScanRequestMapper fileScanRequestMapper,
-            FileScanResultMapper fileScanResultMapper
+            FileScanResultMapper fileScanResultMapper,
+            FileScanEventStreamer fileScanEventStreamer
     ) {
         this.fileScanner = fileScanner;
         this.fileScanRequestMapper = fileScanRequestMapper;
         this.fileScanResultMapper = fileScanResultMapper;
+        this.fileScanEventStreamer = fileScanEventStreamer;
     }
 
     @PostMapping
@@ -60,8 +69,36 @@ public class FileScannerHttpController {
         }
     }
 
+    @PostMapping("/batch")
+    @Operation(
+            summary = "Create and start file scan tasks of one directory with different filters",
+            description = "Directory is walked once for all filters, each named filter gets its own token and result"
+    )
+    public ResponseEntity<ResponseWrapper<Map<String, FileScanResponseDto>>> startBatchScan(
+            @Valid
+            @RequestBody
+            @Parameter(description = "Full request of file scan tasks batch", required = true)
+            FileScanBatchRequestDto requestDto
+    ) {
+        try{
+            FileScanBatchRequest batchRequest = fileScanRequestMapper.toModel(requestDto);
+            Map<String, FileScanResponseDto> responseDtos = new LinkedHashMap<>();
+            fileScanner.startBatchScan(batchRequest).forEach(
+                    (name, scanResponse) -> responseDtos.put(name, fileScanResultMapper.toResponseDto(scanResponse))
+            );
+
+            return ResponseEntity.ok().body(new ResponseWrapper<>(ResponseStatus.SUCCESS, Map.of(), responseDtos));
+        } catch (RuntimeException e) {
+            Map<String, String> error = Map.of(
+                    e.getClass().getSimpleName(),
+                    e.getMessage() == null ? "" : e.getMessage()
+            );
+            return ResponseEntity.badRequest().body(new ResponseWrapper<>(ResponseStatus.ERROR, error, null));
+        }
+    }
+
     @GetMapping("/{token}")
-    @Operation(summary = "Retrieve exact moment result of file scan task")
+    @Operation(summary = "Retrieve exact moment result of file scan task, starting from the cursor")
     public ResponseEntity<ResponseWrapper<FileScanResponseDto>> getResult(
             @PathVariable
             @Parameter(
@@ -69,10 +106,18 @@ public class FileScannerHttpController {
                     example = "a1b2c3d4-e5f6-4a7b-8c9d-0123456789ab",
                     required = true
             )
-            String token
+            String token,
+
+            @RequestParam(defaultValue = "0")
+            @Parameter(description = "Count of result entries already received, returned as 'nextCursor'")
+            int cursor,
+
+            @RequestParam(required = false)
+            @Parameter(description = "Max count of returned result entries, all available entries if not provided")
+            Integer limit
     ) {
         try{
-            FileScanResult result = fileScanner.getResult(token);
+            FileScanResult result = fileScanner.getResult(token, cursor, limit != null ? limit : Integer.MAX_VALUE);
 
             if (result == null) {
                 return ResponseEntity.notFound().build();
@@ -94,6 +139,33 @@ public class FileScannerHttpController {
         }
     }
 
+    @GetMapping(value = "/{token}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream results of file scan task as server-sent events",
+            description = "Sends 'matches' events with new results, periodic 'progress' events "
+                    + "and a final 'completed' or 'interrupted' event")
+    public ResponseEntity<SseEmitter> streamResult(
+            @PathVariable
+            @Parameter(
+                    description = "Token of target file scan task",
+                    example = "a1b2c3d4-e5f6-4a7b-8c9d-0123456789ab",
+                    required = true
+            )
+            String token,
+
+            @RequestParam(defaultValue = "0")
+            @Parameter(description = "Count of result entries already received, streaming starts after them")
+            int cursor
+    ) {
+        if (cursor < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!fileScanner.exists(token)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(fileScanEventStreamer.subscribe(token, cursor));
+    }
+
     @DeleteMapping("/{token}")
     @Operation(summary = "Stop and delete file scan task")
     public ResponseEntity<Void> killScan(
@@ -0,0 +1,25 @@
+package org.marakas73.controller.filescanner.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.marakas73.model.AggregationMode;
+
+@Schema(description = "Aggregation computed instead of the list of matched files")
+public record FileScanAggregationDto(
+
+        @NotNull(message = "Aggregation mode cannot be null")
+        @Schema(description = "Top files by size or modification time, or totals by extension or top level directory")
+        AggregationMode mode,
+
+        @Positive(message = "Aggregation limit must be positive")
+        @Max(value = 100000, message = "Aggregation limit must be at most 100000")
+        @Schema(
+                description = "Count of top files (required for top modes) or of the biggest groups",
+                minimum = "1",
+                maximum = "100000"
+        )
+        Integer limit
+) {
+}
@@ -0,0 +1,31 @@
+package org.marakas73.controller.filescanner.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.util.Map;
+
+@Schema(description = "Batch of file scans of one directory with different filters, run in a single walk")
+public record FileScanBatchRequestDto(
+
+        @NotNull(message = "Directory path cannot be null")
+        @Size(min = 1, message = "Directory path must not be empty")
+        @Schema(description = "Target path to scan", example = "C:/Users/User/")
+        String directoryPath,
+
+        @Positive(message = "Threads count must be positive")
+        @Schema(description = "Max threads count to use in scan", minimum = "1")
+        Integer threadsCount,
+
+        @Positive(message = "Depth limit must be positive")
+        @Schema(description = "Recursive depth limit for scan", minimum = "0")
+        Integer depthLimit,
+
+        @NotEmpty(message = "Scan filters must not be empty")
+        @Schema(description = "Filtering params by filter name, each named filter gets its own scan result")
+        Map<String, FileScanFilterDto> scanFilters
+) {
+}
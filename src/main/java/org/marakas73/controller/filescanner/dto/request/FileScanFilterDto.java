@@ -4,6 +4,9 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.annotation.Nullable;
 import jakarta.validation.constraints.Size;
 import org.marakas73.common.util.IntervalWrapper;
+import org.marakas73.model.TextContentMatchMode;
+
+import java.util.List;
 
 @Schema(description = "Object of all scan files filtering params")
 public record FileScanFilterDto(
@@ -28,6 +31,15 @@ public record FileScanFilterDto(
         @Nullable
         @Size(min = 1, message = "Text content pattern cannot be empty")
         @Schema(description = "Filter by text file content", example = "Hello world")
-        String textContent
+        String textContent,
+
+        @Nullable
+        @Size(min = 1, message = "Text content terms cannot be empty")
+        @Schema(description = "Filter by several text file content terms, searched in a single file read")
+        List<@Size(min = 1, message = "Text content term cannot be empty") String> textContentTerms,
+
+        @Nullable
+        @Schema(description = "Whether any or all text content terms must be found", defaultValue = "ANY")
+        TextContentMatchMode textContentMatchMode
 ) {
 }
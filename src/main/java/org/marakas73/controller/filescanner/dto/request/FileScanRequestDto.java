@@ -1,9 +1,11 @@
 package org.marakas73.controller.filescanner.dto.request;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
+import org.marakas73.model.ScanEngineType;
 
 @Schema(description = "File scan creation full request")
 public record FileScanRequestDto(
@@ -22,6 +24,27 @@ public record FileScanRequestDto(
         Integer depthLimit,
 
         @Schema(description = "Object of all filtering params")
-        FileScanFilterDto scanFilter
+        FileScanFilterDto scanFilter,
+
+        @Schema(description = "Scan engine to use", defaultValue = "FORK_JOIN")
+        ScanEngineType engine,
+
+        @Valid
+        @Schema(description = "Aggregation to compute inside the scan, files are listed if not provided")
+        FileScanAggregationDto aggregation,
+
+        @Positive(message = "Max results count must be positive")
+        @Schema(description = "Scan is stopped when this count of files is found", minimum = "1")
+        Integer maxResults,
+
+        @Schema(
+                description = "Scan is stopped when the first file is found, so result tells if any file matches",
+                defaultValue = "false"
+        )
+        Boolean exists,
+
+        @Valid
+        @Schema(description = "Order of result files, files are listed in the order they are found if not provided")
+        FileScanSortDto sort
 ) {
 }
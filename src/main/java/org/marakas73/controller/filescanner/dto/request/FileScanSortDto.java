@@ -0,0 +1,17 @@
+package org.marakas73.controller.filescanner.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import org.marakas73.model.SortField;
+
+@Schema(description = "Order of result files, files with equal sort values are ordered by path")
+public record FileScanSortDto(
+
+        @NotNull(message = "Sort field cannot be null")
+        @Schema(description = "File path, size or modification time")
+        SortField field,
+
+        @Schema(description = "Whether files are sorted in descending order", defaultValue = "false")
+        Boolean descending
+) {
+}
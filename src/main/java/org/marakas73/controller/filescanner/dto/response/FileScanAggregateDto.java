@@ -0,0 +1,17 @@
+package org.marakas73.controller.filescanner.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Totals of aggregation result entry")
+public record FileScanAggregateDto(
+
+        @Schema(description = "Count of files, 1 for top files")
+        long count,
+
+        @Schema(description = "Total size of files in bytes")
+        long totalBytes,
+
+        @Schema(description = "The latest modification time of files in epoch milliseconds")
+        long lastModifiedMillis
+) {
+}
@@ -0,0 +1,14 @@
+package org.marakas73.controller.filescanner.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "File scan progress event object")
+public record FileScanProgressDto(
+
+        @Schema(description = "Count of files found by task at the moment")
+        int found,
+
+        @Schema(description = "Time since subscription to task events in milliseconds")
+        long elapsedMillis
+) {
+}
@@ -3,6 +3,7 @@ package org.marakas73.controller.filescanner.dto.response;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import java.util.List;
+import java.util.Map;
 
 @Schema(description = "File scan response object")
 public record FileScanResponseDto(
@@ -10,10 +11,31 @@ public record FileScanResponseDto(
         @Schema(description = "Providing token of alive task")
         String token,
 
-        @Schema(description = "Status of task", allowableValues = {"true", "false"})
+        @Schema(
+                description = "Status of task, true when task is done and its last result entries are returned",
+                allowableValues = {"true", "false"}
+        )
         boolean completed,
 
+        @Schema(description = "Whether task was stopped before scanning all files", allowableValues = {"true", "false"})
+        boolean interrupted,
+
+        @Schema(
+                description = "Whether task was stopped because max results count is found, result is complete then",
+                allowableValues = {"true", "false"}
+        )
+        boolean limitReached,
+
         @Schema(description = "Founded and filtered files by task")
-        List<String> result
+        List<String> result,
+
+        @Schema(description = "Text content terms found in each file, filled only for text content terms filter")
+        Map<String, List<String>> matchedTerms,
+
+        @Schema(description = "Cursor to request next result entries with")
+        int nextCursor,
+
+        @Schema(description = "Totals of each result entry, filled only for aggregation scans")
+        Map<String, FileScanAggregateDto> aggregates
 ) {
 }
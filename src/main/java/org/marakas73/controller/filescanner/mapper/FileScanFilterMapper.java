@@ -7,6 +7,7 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
 
 @Component
 public class FileScanFilterMapper {
@@ -38,7 +39,9 @@ public class FileScanFilterMapper {
                 sizeInBytesInterval,
                 lastModifiedDateInterval,
                 lastModifiedTimeInterval,
-                dto.textContent()
+                dto.textContent(),
+                dto.textContentTerms() == null ? null : List.copyOf(dto.textContentTerms()),
+                dto.textContentMatchMode()
         );
     }
 }
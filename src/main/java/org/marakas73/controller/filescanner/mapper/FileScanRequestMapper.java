@@ -1,10 +1,17 @@
 package org.marakas73.controller.filescanner.mapper;
 
+import org.marakas73.controller.filescanner.dto.request.FileScanBatchRequestDto;
 import org.marakas73.controller.filescanner.dto.request.FileScanRequestDto;
+import org.marakas73.model.FileScanAggregation;
+import org.marakas73.model.FileScanBatchRequest;
 import org.marakas73.model.FileScanFilter;
 import org.marakas73.model.FileScanRequest;
+import org.marakas73.model.FileScanSort;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Component
 public class FileScanRequestMapper {
     private final FileScanFilterMapper filterMapper;
@@ -15,12 +22,39 @@ public class FileScanRequestMapper {
 
     public FileScanRequest toModel(FileScanRequestDto dto) {
         FileScanFilter scanFilterModel = dto.scanFilter() == null ? null : filterMapper.toModel(dto.scanFilter());
+        FileScanAggregation aggregationModel = dto.aggregation() == null
+                ? null
+                : new FileScanAggregation(dto.aggregation().mode(), dto.aggregation().limit());
+        FileScanSort sortModel = dto.sort() == null
+                ? null
+                : new FileScanSort(dto.sort().field(), Boolean.TRUE.equals(dto.sort().descending()));
 
         return new FileScanRequest(
                 dto.directoryPath(),
                 dto.threadsCount(),
                 dto.depthLimit(),
-                scanFilterModel
+                scanFilterModel,
+                dto.engine(),
+                aggregationModel,
+                dto.maxResults(),
+                Boolean.TRUE.equals(dto.exists()),
+                sortModel
+        );
+    }
+
+    public FileScanBatchRequest toModel(FileScanBatchRequestDto dto) {
+        // Order of filters is kept, so results are returned in the same order
+        Map<String, FileScanFilter> scanFilterModels = new LinkedHashMap<>();
+        dto.scanFilters().forEach((name, filter) -> scanFilterModels.put(
+                name,
+                filter == null ? null : filterMapper.toModel(filter)
+        ));
+
+        return new FileScanBatchRequest(
+                dto.directoryPath(),
+                dto.threadsCount(),
+                dto.depthLimit(),
+                scanFilterModels
         );
     }
 }
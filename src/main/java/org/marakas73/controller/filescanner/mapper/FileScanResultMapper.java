@@ -1,16 +1,36 @@
 package org.marakas73.controller.filescanner.mapper;
 
+import org.marakas73.controller.filescanner.dto.response.FileScanAggregateDto;
 import org.marakas73.controller.filescanner.dto.response.FileScanResponseDto;
+import org.marakas73.model.FileScanAggregate;
 import org.marakas73.model.FileScanResult;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Component
 public class FileScanResultMapper {
     public FileScanResponseDto toResponseDto(FileScanResult model) {
         return new FileScanResponseDto(
                 model.token(),
                 model.completed(),
-                model.result()
+                model.interrupted(),
+                model.limitReached(),
+                model.result(),
+                model.matchedTerms(),
+                model.nextCursor(),
+                aggregatesToDto(model.aggregates())
         );
     }
+
+    private static Map<String, FileScanAggregateDto> aggregatesToDto(Map<String, FileScanAggregate> aggregates) {
+        Map<String, FileScanAggregateDto> dtos = new HashMap<>();
+        aggregates.forEach((key, aggregate) -> dtos.put(key, new FileScanAggregateDto(
+                aggregate.count(),
+                aggregate.totalBytes(),
+                aggregate.lastModifiedMillis()
+        )));
+        return dtos;
+    }
 }
@@ -0,0 +1,158 @@
+package org.marakas73.controller.filescanner.stream;
+
+import jakarta.annotation.PreDestroy;
+import org.marakas73.config.FileScannerProperties;
+import org.marakas73.controller.filescanner.dto.response.FileScanProgressDto;
+import org.marakas73.controller.filescanner.mapper.FileScanResultMapper;
+import org.marakas73.model.FileScanResult;
+import org.marakas73.service.filescanner.FileScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes scan results to SSE subscribers.
+ * Subscribers pull new results from scanner by cursor, so scan workers are never blocked by clients.
+ */
+@Component
+public class FileScanEventStreamer {
+    private static final Logger log = LoggerFactory.getLogger(FileScanEventStreamer.class);
+
+    public static final String MATCHES_EVENT_NAME = "matches";
+    public static final String PROGRESS_EVENT_NAME = "progress";
+    public static final String COMPLETED_EVENT_NAME = "completed";
+    public static final String INTERRUPTED_EVENT_NAME = "interrupted";
+
+    private final FileScanner fileScanner;
+    private final FileScanResultMapper fileScanResultMapper;
+    private final int batchSize;
+
+    private final Map<SseEmitter, Subscription> subscriptions = new ConcurrentHashMap<>();
+    // Sends can block on slow clients, so they are done on own threads
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public FileScanEventStreamer(
+            FileScanner fileScanner,
+            FileScanResultMapper fileScanResultMapper,
+            FileScannerProperties properties
+    ) {
+        this.fileScanner = fileScanner;
+        this.fileScanResultMapper = fileScanResultMapper;
+        this.batchSize = properties.getStreamBatchSize();
+    }
+
+    public SseEmitter subscribe(String token, int cursor) {
+        // Subscription lives while scan is running, it's completed by the final event or client disconnect
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscription subscription = new Subscription(token, cursor);
+
+        emitter.onCompletion(() -> subscriptions.remove(emitter));
+        emitter.onTimeout(() -> subscriptions.remove(emitter));
+        emitter.onError(e -> subscriptions.remove(emitter));
+        subscriptions.put(emitter, subscription);
+
+        // Send already found results right away
+        dispatch(emitter, subscription);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${scanner.stream-interval}")
+    private void pushUpdates() {
+        subscriptions.forEach(this::dispatch);
+    }
+
+    private void dispatch(SseEmitter emitter, Subscription subscription) {
+        // Previous send is still in flight, skip the tick and send all accumulated results with the next one
+        if (!subscription.sending.compareAndSet(false, true)) {
+            return;
+        }
+
+        sendExecutor.execute(() -> {
+            try {
+                push(emitter, subscription);
+            } catch (IOException | IllegalStateException e) {
+                // Client is gone
+                log.debug("Failed to send scan events by token {}: {}", subscription.token, e.getMessage());
+                subscriptions.remove(emitter);
+                emitter.completeWithError(e);
+            } catch (RuntimeException e) {
+                log.error("Error while streaming scan result by token {}:", subscription.token, e);
+                subscriptions.remove(emitter);
+                emitter.completeWithError(e);
+            } finally {
+                subscription.sending.set(false);
+            }
+        });
+    }
+
+    private void push(SseEmitter emitter, Subscription subscription) throws IOException {
+        while (true) {
+            // Results are read by pages, so cached results are not loaded at once
+            FileScanResult result = fileScanner.getResult(subscription.token, subscription.cursor, batchSize);
+            if (result == null) {
+                // Scan and its cached result are gone
+                subscriptions.remove(emitter);
+                emitter.complete();
+                return;
+            }
+
+            if (!result.result().isEmpty()) {
+                emitter.send(SseEmitter.event()
+                        .name(MATCHES_EVENT_NAME)
+                        .data(fileScanResultMapper.toResponseDto(result)));
+                subscription.cursor = result.nextCursor();
+            }
+
+            var progress = new FileScanProgressDto(
+                    result.nextCursor(),
+                    System.currentTimeMillis() - subscription.startedAtMillis
+            );
+            if (result.completed()) {
+                subscriptions.remove(emitter);
+                emitter.send(SseEmitter.event()
+                        .name(result.interrupted() ? INTERRUPTED_EVENT_NAME : COMPLETED_EVENT_NAME)
+                        .data(progress));
+                emitter.complete();
+                return;
+            }
+            if (result.result().size() < batchSize) {
+                // All found results are sent, progress event also works as a heartbeat
+                // which detects disconnected clients
+                emitter.send(SseEmitter.event()
+                        .name(PROGRESS_EVENT_NAME)
+                        .data(progress));
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.keySet().forEach(SseEmitter::complete);
+        subscriptions.clear();
+        sendExecutor.shutdownNow();
+    }
+
+    private static final class Subscription {
+        private final String token;
+        private final long startedAtMillis = System.currentTimeMillis();
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        // Only accessed by the single in-flight send
+        private volatile int cursor;
+
+        private Subscription(String token, int cursor) {
+            this.token = token;
+            this.cursor = cursor;
+        }
+    }
+}
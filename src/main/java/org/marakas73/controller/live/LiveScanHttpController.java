@@ -0,0 +1,80 @@
+package org.marakas73.controller.live;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.marakas73.controller.filescanner.dto.request.FileScanRequestDto;
+import org.marakas73.controller.filescanner.dto.response.ResponseStatus;
+import org.marakas73.controller.filescanner.dto.response.ResponseWrapper;
+import org.marakas73.controller.filescanner.mapper.FileScanRequestMapper;
+import org.marakas73.controller.live.dto.response.LiveRegistrationDto;
+import org.marakas73.service.filescanner.live.LiveScanService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("api/file-scanner/live")
+@Tag(name = "Live scan HTTP controller", description = "Scans kept up to date by file system watch events")
+public class LiveScanHttpController {
+    private final LiveScanService liveScanService;
+    private final FileScanRequestMapper fileScanRequestMapper;
+
+    public LiveScanHttpController(LiveScanService liveScanService, FileScanRequestMapper fileScanRequestMapper) {
+        this.liveScanService = liveScanService;
+        this.fileScanRequestMapper = fileScanRequestMapper;
+    }
+
+    @PostMapping
+    @Operation(summary = "Register scan as live, equivalent scans are answered from memory when it's ready")
+    public ResponseEntity<ResponseWrapper<String>> register(
+            @Valid
+            @RequestBody
+            @Parameter(description = "Full request of file scan to keep up to date", required = true)
+            FileScanRequestDto requestDto
+    ) {
+        try {
+            String key = liveScanService.register(fileScanRequestMapper.toModel(requestDto));
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(new ResponseWrapper<>(ResponseStatus.SUCCESS, Map.of(), key));
+        } catch (RuntimeException e) {
+            Map<String, String> error = Map.of(
+                    e.getClass().getSimpleName(),
+                    e.getMessage() == null ? "" : e.getMessage()
+            );
+            return ResponseEntity.badRequest().body(new ResponseWrapper<>(ResponseStatus.ERROR, error, null));
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "List live registrations")
+    public ResponseEntity<ResponseWrapper<List<LiveRegistrationDto>>> getRegistrations() {
+        List<LiveRegistrationDto> registrations = liveScanService.getRegistrations().stream()
+                .map(registration -> new LiveRegistrationDto(
+                        registration.getKey(),
+                        registration.getRootPath().toString(),
+                        registration.isReady(),
+                        registration.getFoundCount(),
+                        registration.getWatchedDirectoryCount(),
+                        registration.getUnwatchedDirectoryCount()
+                ))
+                .toList();
+        return ResponseEntity.ok(new ResponseWrapper<>(ResponseStatus.SUCCESS, Map.of(), registrations));
+    }
+
+    @DeleteMapping("/{key}")
+    @Operation(summary = "Stop watching and remove live registration")
+    public ResponseEntity<Void> unregister(
+            @PathVariable
+            @Parameter(description = "Key of live registration", required = true)
+            String key
+    ) {
+        boolean removed = liveScanService.unregister(key);
+        return removed ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
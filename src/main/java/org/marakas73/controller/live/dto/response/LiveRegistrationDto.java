@@ -0,0 +1,26 @@
+package org.marakas73.controller.live.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Live registration of file scan")
+public record LiveRegistrationDto(
+
+        @Schema(description = "Registration key, the same for equivalent scan requests")
+        String key,
+
+        @Schema(description = "Canonical path of watched root", example = "/home/user/projects")
+        String rootPath,
+
+        @Schema(description = "Is initial scan completed, so results are answered from memory")
+        boolean ready,
+
+        @Schema(description = "Count of matched files at the moment")
+        int found,
+
+        @Schema(description = "Count of watched directories")
+        int watchedDirectories,
+
+        @Schema(description = "Count of subtrees which can't be watched and are rescanned periodically")
+        int unwatchedDirectories
+) {
+}
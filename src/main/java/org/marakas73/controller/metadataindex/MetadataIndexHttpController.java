@@ -0,0 +1,77 @@
+package org.marakas73.controller.metadataindex;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.marakas73.controller.filescanner.dto.response.ResponseStatus;
+import org.marakas73.controller.filescanner.dto.response.ResponseWrapper;
+import org.marakas73.controller.metadataindex.dto.response.MetadataIndexDto;
+import org.marakas73.service.filescanner.index.MetadataIndexService;
+import org.marakas73.service.filescanner.util.FileScanCacheUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("api/file-scanner/index")
+@Tag(name = "Metadata index HTTP controller", description = "Registration of roots answered from metadata index")
+public class MetadataIndexHttpController {
+    private final MetadataIndexService metadataIndexService;
+    private final FileScanCacheUtils cacheUtils;
+
+    public MetadataIndexHttpController(MetadataIndexService metadataIndexService, FileScanCacheUtils cacheUtils) {
+        this.metadataIndexService = metadataIndexService;
+        this.cacheUtils = cacheUtils;
+    }
+
+    @PostMapping
+    @Operation(summary = "Register root and start building its metadata index")
+    public ResponseEntity<ResponseWrapper<String>> register(
+            @RequestParam
+            @Parameter(description = "Path of root directory", example = "/home/user/projects", required = true)
+            String directoryPath
+    ) {
+        try {
+            Path rootPath = cacheUtils.canonicalRootPath(directoryPath);
+            metadataIndexService.register(rootPath);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(new ResponseWrapper<>(ResponseStatus.SUCCESS, Map.of(), rootPath.toString()));
+        } catch (RuntimeException e) {
+            Map<String, String> error = Map.of(
+                    e.getClass().getSimpleName(),
+                    e.getMessage() == null ? "" : e.getMessage()
+            );
+            return ResponseEntity.badRequest().body(new ResponseWrapper<>(ResponseStatus.ERROR, error, null));
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "List built metadata indexes")
+    public ResponseEntity<ResponseWrapper<List<MetadataIndexDto>>> getIndexes() {
+        List<MetadataIndexDto> indexes = metadataIndexService.getIndexes().stream()
+                .map(index -> new MetadataIndexDto(
+                        index.getRootPath().toString(),
+                        index.getEntryCount(),
+                        index.getSegmentCount(),
+                        index.getBuiltAtMillis()
+                ))
+                .toList();
+        return ResponseEntity.ok(new ResponseWrapper<>(ResponseStatus.SUCCESS, Map.of(), indexes));
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Unregister root and delete its metadata index")
+    public ResponseEntity<Void> unregister(
+            @RequestParam
+            @Parameter(description = "Path of registered root directory", example = "/home/user/projects", required = true)
+            String directoryPath
+    ) {
+        boolean unregistered = metadataIndexService.unregister(cacheUtils.canonicalRootPath(directoryPath));
+        return unregistered ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
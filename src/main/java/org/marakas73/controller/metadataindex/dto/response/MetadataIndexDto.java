@@ -0,0 +1,20 @@
+package org.marakas73.controller.metadataindex.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Metadata index of registered root")
+public record MetadataIndexDto(
+
+        @Schema(description = "Canonical path of indexed root", example = "/home/user/projects")
+        String rootPath,
+
+        @Schema(description = "Count of indexed files and directories")
+        long entryCount,
+
+        @Schema(description = "Count of sorted segments on disk")
+        int segmentCount,
+
+        @Schema(description = "Time when index build was started, in epoch milliseconds")
+        long builtAtMillis
+) {
+}
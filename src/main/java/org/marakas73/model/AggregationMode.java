@@ -0,0 +1,12 @@
+package org.marakas73.model;
+
+public enum AggregationMode {
+    // Files with the biggest size
+    LARGEST,
+    // Files with the latest modification time
+    NEWEST,
+    // Totals by lower case file extension, files without extension are grouped under empty key
+    BY_EXTENSION,
+    // Totals by first directory under the scan root, files of the root itself are grouped under "." key
+    BY_TOP_LEVEL_DIRECTORY
+}
@@ -0,0 +1,13 @@
+package org.marakas73.model;
+
+/**
+ * Describes scan result stored in cache as fixed-size chunks.
+ */
+public record CachedResultManifest(
+        int size,
+        int chunkSize,
+        int chunkCount,
+        // Result is a complete result of scan stopped by max results count
+        boolean limitReached
+) {
+}
@@ -0,0 +1,13 @@
+package org.marakas73.model;
+
+/**
+ * Totals of a single aggregation result entry, a file of top modes is an entry with count 1.
+ *
+ * @param lastModifiedMillis the latest modification time of the entry files.
+ */
+public record FileScanAggregate(
+        long count,
+        long totalBytes,
+        long lastModifiedMillis
+) {
+}
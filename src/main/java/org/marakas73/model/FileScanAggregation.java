@@ -0,0 +1,12 @@
+package org.marakas73.model;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * @param limit count of returned files for top modes (required) or of the biggest groups for group modes.
+ */
+public record FileScanAggregation(
+        AggregationMode mode,
+        @Nullable Integer limit
+) {
+}
@@ -0,0 +1,13 @@
+package org.marakas73.model;
+
+import jakarta.annotation.Nullable;
+
+import java.util.Map;
+
+public record FileScanBatchRequest(
+        String directoryPath,
+        @Nullable Integer threadsCount,
+        @Nullable Integer depthLimit,
+        Map<String, FileScanFilter> scanFilters
+) {
+}
@@ -1,54 +1,154 @@
 package org.marakas73.model;
 
+import org.marakas73.service.filescanner.result.ChunkedResultBuffer;
+
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class FileScanContext {
-    private final ForkJoinPool pool;
     private final CompletableFuture<List<String>> future;
-    private final List<String> partial;
+    private final ChunkedResultBuffer partial;
+    private final Map<String, List<String>> matchedTerms;
     private final AtomicBoolean interrupted;
     private final String cacheKey;
+    // Scans of one batch are produced by the same walk and share its id
+    private final String walkId;
+    // Totals of result entries of aggregation scan, filled when scan is completed
+    private final Map<String, FileScanAggregate> aggregates;
+    // Tokens of identical scan requests sharing this scan
+    private final Set<String> tokens = new HashSet<>();
 
     private long completedAtMillis;
+    // Result is filtered from cached result of a broader scan instead of walking the tree
+    private volatile boolean derived;
 
     public FileScanContext(
-            ForkJoinPool pool,
             CompletableFuture<List<String>> future,
-            List<String> partial,
+            ChunkedResultBuffer partial,
+            Map<String, List<String>> matchedTerms,
             AtomicBoolean interrupted,
             String cacheKey
     ) {
-        this.pool = pool;
+        this(future, partial, matchedTerms, interrupted, cacheKey, cacheKey);
+    }
+
+    public FileScanContext(
+            CompletableFuture<List<String>> future,
+            ChunkedResultBuffer partial,
+            Map<String, List<String>> matchedTerms,
+            AtomicBoolean interrupted,
+            String cacheKey,
+            String walkId
+    ) {
+        this(future, partial, matchedTerms, interrupted, cacheKey, walkId, Map.of());
+    }
+
+    public FileScanContext(
+            CompletableFuture<List<String>> future,
+            ChunkedResultBuffer partial,
+            Map<String, List<String>> matchedTerms,
+            AtomicBoolean interrupted,
+            String cacheKey,
+            String walkId,
+            Map<String, FileScanAggregate> aggregates
+    ) {
         this.future = future;
         this.partial = partial;
+        this.matchedTerms = matchedTerms;
         this.interrupted = interrupted;
         this.cacheKey = cacheKey;
-    }
-
-    public ForkJoinPool getPool() {
-        return pool;
+        this.walkId = walkId;
+        this.aggregates = aggregates;
     }
 
     public CompletableFuture<List<String>> getFuture() {
         return future;
     }
 
-    public List<String> getPartial() {
+    public ChunkedResultBuffer getPartial() {
         return partial;
     }
 
+    public Map<String, List<String>> getMatchedTerms() {
+        return matchedTerms;
+    }
+
     public AtomicBoolean isInterrupted() {
         return interrupted;
     }
 
+    /**
+     * @return {@code true} if result reached max results count of the scan, scan tasks are stopped by it.
+     */
+    public boolean isLimitReached() {
+        return partial.isFull();
+    }
+
+    /**
+     * @return {@code true} if result is incomplete because scan is interrupted,
+     * result of scan stopped by max results count is complete.
+     */
+    public boolean isResultInterrupted() {
+        return interrupted.get() && !isLimitReached();
+    }
+
     public String getCacheKey() {
         return cacheKey;
     }
 
+    public String getWalkId() {
+        return walkId;
+    }
+
+    public Map<String, FileScanAggregate> getAggregates() {
+        return aggregates;
+    }
+
+    public synchronized void attach(String token) {
+        tokens.add(token);
+    }
+
+    /**
+     * @return {@code false} if scan is already interrupted, so it can't be shared anymore.
+     */
+    public synchronized boolean tryAttach(String token) {
+        if(isResultInterrupted()) {
+            return false;
+        }
+        tokens.add(token);
+        return true;
+    }
+
+    /**
+     * Detaches token only if other tokens share the scan, otherwise marks scan as interrupted.
+     *
+     * @return {@code true} if token is detached and scan must keep running for other tokens.
+     */
+    public synchronized boolean detachIfShared(String token) {
+        if(tokens.size() > 1 && tokens.remove(token)) {
+            return true;
+        }
+        interrupted.set(true);
+        return false;
+    }
+
+    /**
+     * @return {@code true} if no tokens are attached anymore.
+     */
+    public synchronized boolean detach(String token) {
+        tokens.remove(token);
+        return tokens.isEmpty();
+    }
+
+    public synchronized Set<String> getTokens() {
+        return Set.copyOf(tokens);
+    }
+
     public long getCompletedAtMillis() {
         return completedAtMillis;
     }
@@ -64,29 +164,37 @@ public final class FileScanContext {
         setCompletedAtMillis(System.currentTimeMillis());
     }
 
+    public boolean isDerived() {
+        return derived;
+    }
+
+    public void markDerived() {
+        this.derived = true;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         if (obj == null || obj.getClass() != this.getClass()) return false;
         var that = (FileScanContext) obj;
-        return Objects.equals(this.pool, that.pool) &&
-                Objects.equals(this.future, that.future) &&
+        return Objects.equals(this.future, that.future) &&
                 Objects.equals(this.partial, that.partial) &&
+                Objects.equals(this.matchedTerms, that.matchedTerms) &&
                 Objects.equals(this.interrupted, that.interrupted) &&
                 Objects.equals(this.cacheKey, that.cacheKey);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(pool, future, partial, interrupted, cacheKey);
+        return Objects.hash(future, partial, matchedTerms, interrupted, cacheKey);
     }
 
     @Override
     public String toString() {
         return "FileScanContext[" +
-                "pool=" + pool + "," +
                 "future=" + future + "," +
                 "partial=" + partial + "," +
+                "matchedTerms=" + matchedTerms + "," +
                 "interrupted=" + interrupted + "," +
                 "cacheKey=" + cacheKey + ']';
     }
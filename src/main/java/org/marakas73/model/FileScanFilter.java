@@ -5,12 +5,15 @@ import org.marakas73.common.util.IntervalWrapper;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
 
 public record FileScanFilter(
         @Nullable String namePattern,
         @Nullable IntervalWrapper<Long> sizeInBytesInterval,
         @Nullable IntervalWrapper<LocalDate> lastModifiedDateInterval,
         @Nullable IntervalWrapper<LocalTime> lastModifiedTimeInterval,
-        @Nullable String textContent
+        @Nullable String textContent,
+        @Nullable List<String> textContentTerms,
+        @Nullable TextContentMatchMode textContentMatchMode
 ) {
 }
@@ -6,6 +6,14 @@ public record FileScanRequest(
         String directoryPath,
         @Nullable Integer threadsCount,
         @Nullable Integer depthLimit,
-        @Nullable FileScanFilter scanFilter
+        @Nullable FileScanFilter scanFilter,
+        @Nullable ScanEngineType engine,
+        @Nullable FileScanAggregation aggregation,
+        // Scan is stopped when this count of files is found
+        @Nullable Integer maxResults,
+        // Scan is stopped when the first file is found, so result tells if any file matches
+        boolean exists,
+        // Result order, files are listed in the order they are found if not provided
+        @Nullable FileScanSort sort
 ) {
 }
@@ -1,10 +1,18 @@
 package org.marakas73.model;
 
 import java.util.List;
+import java.util.Map;
 
 public record FileScanResult(
         String token,
         boolean completed,
-        List<String> result
+        boolean interrupted,
+        // Scan is stopped because max results count is found, result is complete then
+        boolean limitReached,
+        List<String> result,
+        Map<String, List<String>> matchedTerms,
+        int nextCursor,
+        // Totals of result entries, filled only for aggregation scans
+        Map<String, FileScanAggregate> aggregates
 ) {
 }
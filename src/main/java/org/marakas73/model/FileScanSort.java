@@ -0,0 +1,10 @@
+package org.marakas73.model;
+
+/**
+ * Order of result files, files with equal size or modification time are ordered by path.
+ */
+public record FileScanSort(
+        SortField field,
+        boolean descending
+) {
+}
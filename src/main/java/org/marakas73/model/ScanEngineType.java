@@ -0,0 +1,7 @@
+package org.marakas73.model;
+
+public enum ScanEngineType {
+    FORK_JOIN,
+    VIRTUAL_THREADS,
+    PIPELINE
+}
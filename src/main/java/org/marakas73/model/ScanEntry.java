@@ -0,0 +1,50 @@
+package org.marakas73.model;
+
+import jakarta.annotation.Nullable;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Metadata of a single directory entry, read once by the walker and shared by all filter predicates.
+ */
+public record ScanEntry(
+        Path path,
+        long size,
+        long lastModifiedMillis,
+        Type type,
+        @Nullable Object fileKey
+) {
+    public enum Type {
+        FILE,
+        DIRECTORY,
+        OTHER
+    }
+
+    public static ScanEntry of(Path path, BasicFileAttributes attributes) {
+        Type type;
+        if (attributes.isRegularFile()) {
+            type = Type.FILE;
+        } else if (attributes.isDirectory()) {
+            type = Type.DIRECTORY;
+        } else {
+            type = Type.OTHER;
+        }
+
+        return new ScanEntry(
+                path,
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis(),
+                type,
+                attributes.fileKey()
+        );
+    }
+
+    public boolean isRegularFile() {
+        return type == Type.FILE;
+    }
+
+    public boolean isDirectory() {
+        return type == Type.DIRECTORY;
+    }
+}
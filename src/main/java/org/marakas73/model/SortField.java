@@ -0,0 +1,9 @@
+package org.marakas73.model;
+
+public enum SortField {
+    PATH,
+    // File size in bytes
+    SIZE,
+    // File modification time
+    LAST_MODIFIED
+}
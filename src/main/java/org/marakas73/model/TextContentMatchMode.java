@@ -0,0 +1,6 @@
+package org.marakas73.model;
+
+public enum TextContentMatchMode {
+    ANY,
+    ALL
+}
@@ -1,21 +1,46 @@
 package org.marakas73.service.filescanner;
 
+import jakarta.annotation.Nullable;
 import jakarta.annotation.PreDestroy;
 import org.marakas73.config.FileScannerProperties;
+import org.marakas73.model.CachedResultManifest;
+import org.marakas73.model.FileScanAggregate;
+import org.marakas73.model.FileScanAggregation;
+import org.marakas73.model.FileScanBatchRequest;
 import org.marakas73.model.FileScanContext;
 import org.marakas73.model.FileScanRequest;
 import org.marakas73.model.FileScanResult;
+import org.marakas73.model.ScanEngineType;
+import org.marakas73.service.filescanner.aggregation.AggregationScanRunner;
+import org.marakas73.service.filescanner.batch.BatchScanRunner;
+import org.marakas73.service.filescanner.derived.CachedFilterCatalog;
+import org.marakas73.service.filescanner.derived.DerivedScanRunner;
+import org.marakas73.service.filescanner.engine.FileScanEngine;
+import org.marakas73.service.filescanner.engine.FileScanJob;
 import org.marakas73.service.filescanner.exception.ActiveScanCountLimitExceededException;
+import org.marakas73.service.filescanner.index.MetadataIndex;
+import org.marakas73.service.filescanner.index.MetadataIndexService;
+import org.marakas73.service.filescanner.live.LiveScanService;
+import org.marakas73.service.filescanner.result.ChunkedResultBuffer;
+import org.marakas73.service.filescanner.result.CompactResultList;
+import org.marakas73.service.filescanner.result.ResultBufferFactory;
+import org.marakas73.service.filescanner.sort.SortedScanRunner;
 import org.marakas73.service.filescanner.util.FileScanCacheUtils;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
 import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.nio.file.Paths;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.*;
@@ -25,59 +50,337 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class FileScanner {
     private static final Logger log = LoggerFactory.getLogger(FileScanner.class);
 
-    private static final int NORMAL_SHUTDOWN_TIME_LIMIT_SECS = 5; // 5 secs
-    private static final String FULL_RESULT_CACHE_NAME = "fileScanFullResult";
+    public static final String FULL_RESULT_CACHE_NAME = "fileScanFullResult";
     private static final String INTERRUPTED_RESULT_CACHE_NAME = "fileScanInterruptedResult";
     private static final String TOKEN_TO_KEY_CACHE_NAME = "fileScanTokenToKey";
+    public static final String MATCHED_TERMS_CACHE_NAME = "fileScanMatchedTerms";
+    private static final String AGGREGATES_CACHE_NAME = "fileScanAggregates";
 
     private final FileScanFilterMatcher patternMatcher;
     private final FileScannerProperties properties;
     private final FileScanCacheUtils cacheUtils;
-
+    private final CachedFilterCatalog filterCatalog;
+    private final DerivedScanRunner derivedScanRunner;
+    private final MetadataIndexService metadataIndexService;
+    private final LiveScanService liveScanService;
+    private final BatchScanRunner batchScanRunner;
+    private final AggregationScanRunner aggregationScanRunner;
+    private final SortedScanRunner sortedScanRunner;
+    private final ResultBufferFactory resultBufferFactory;
+    private final Map<ScanEngineType, FileScanEngine> engines = new EnumMap<>(ScanEngineType.class);
+
+    // Token -> scan, identical scans share one context
     private final ConcurrentMap<String, FileScanContext> scans = new ConcurrentHashMap<>();
+    // Cache key -> running or buffered scan
+    private final ConcurrentMap<String, FileScanContext> scansByKey = new ConcurrentHashMap<>();
 
     public FileScanner(
             FileScanFilterMatcher patternMatcher,
             FileScannerProperties properties,
-            FileScanCacheUtils cacheUtils
+            FileScanCacheUtils cacheUtils,
+            CachedFilterCatalog filterCatalog,
+            DerivedScanRunner derivedScanRunner,
+            MetadataIndexService metadataIndexService,
+            LiveScanService liveScanService,
+            BatchScanRunner batchScanRunner,
+            AggregationScanRunner aggregationScanRunner,
+            SortedScanRunner sortedScanRunner,
+            ResultBufferFactory resultBufferFactory,
+            List<FileScanEngine> engines
     ) {
         this.patternMatcher = patternMatcher;
         this.properties = properties;
         this.cacheUtils = cacheUtils;
+        this.filterCatalog = filterCatalog;
+        this.derivedScanRunner = derivedScanRunner;
+        this.metadataIndexService = metadataIndexService;
+        this.liveScanService = liveScanService;
+        this.batchScanRunner = batchScanRunner;
+        this.aggregationScanRunner = aggregationScanRunner;
+        this.sortedScanRunner = sortedScanRunner;
+        this.resultBufferFactory = resultBufferFactory;
+        engines.forEach(engine -> this.engines.put(engine.getType(), engine));
     }
 
     public FileScanResult startScan(FileScanRequest scanRequest) {
-        final String cacheKey = cacheUtils.buildScanCacheKey(scanRequest);
+        // Filter is compiled once and shared by all scan tasks
+        CompiledFileScanFilter compiledFilter = patternMatcher.compile(scanRequest.scanFilter());
+        final Integer maxResults = maxResults(scanRequest);
+        // Equivalent requests scan the same canonical root and share the cache key
+        final Path rootPath = cacheUtils.canonicalRootPath(scanRequest.directoryPath());
+        final String cacheKey = cacheUtils.buildScanCacheKey(
+                rootPath,
+                scanRequest.depthLimit(),
+                compiledFilter,
+                scanRequest.aggregation(),
+                maxResults,
+                scanRequest.sort()
+        );
+
+        Optional<FileScanResult> readyResultOptional = findReadyResult(cacheKey, scanRequest);
+        if(readyResultOptional.isPresent()) {
+            return readyResultOptional.get();
+        }
+
+        // No cached or buffered result was found
+        // Attach to running identical scan or start new one, atomically per cache key
+        final String token = UUID.randomUUID().toString();
+        final FileScanContext[] started = new FileScanContext[1];
+        FileScanContext context = scansByKey.compute(cacheKey, (key, running) -> {
+            if(running != null && !running.getFuture().isDone() && running.tryAttach(token)) {
+                log.info("Scan task with request {} is running, attaching token {} to it", scanRequest, token);
+                scans.put(token, running);
+                return running;
+            }
+
+            // Only pending context is created under the lock of the map bin, the scan is started outside of it
+            // and identical requests are attached to the pending context meanwhile
+            started[0] = createPendingScan(token, scanRequest, cacheKey, maxResults);
+            scans.put(token, started[0]);
+            return started[0];
+        });
+
+        if(started[0] != null) {
+            try {
+                startPendingScan(context, token, scanRequest, rootPath, compiledFilter);
+            } catch (RuntimeException e) {
+                // Scan is not started, so it's removed together with tokens attached to it meanwhile
+                scansByKey.remove(cacheKey, context);
+                context.getTokens().forEach(attached -> scans.remove(attached, context));
+                context.getFuture().completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        // Cache token->key for future result retrieving by token
+        cacheUtils.putValueInCache(token, cacheKey, TOKEN_TO_KEY_CACHE_NAME);
+
+        if(started[0] != null) {
+            // Caching and logging after scan task completion
+            context.getFuture().whenComplete((result, throwable) -> onScanCompleted(
+                    context,
+                    rootPath,
+                    scanRequest.depthLimit(),
+                    compiledFilter,
+                    scanRequest.aggregation(),
+                    result,
+                    throwable
+            ));
+        }
+
+        // Use 'future.isDone()' instead of 'false' and 'partial' instead of 'List.of()'
+        // in case when scan task is very fast to complete or already have any results at this moment
+        return toResult(
+                token,
+                context.getFuture().isDone(),
+                context.isResultInterrupted(),
+                context.isLimitReached(),
+                context.getPartial().snapshot(),
+                context.getMatchedTerms(),
+                context.getAggregates(),
+                0,
+                Integer.MAX_VALUE
+        );
+    }
+
+    /**
+     * Starts scans of one root with different named filters. Scans which have no ready result are run
+     * in a single walk, each of them gets its own token and is cached under its own key.
+     *
+     * @return result of each scan by filter name, in order of request filters.
+     */
+    public Map<String, FileScanResult> startBatchScan(FileScanBatchRequest batchRequest) {
+        final Path rootPath = cacheUtils.canonicalRootPath(batchRequest.directoryPath());
+        final Integer depthLimit = batchRequest.depthLimit();
+        Map<String, FileScanResult> results = new HashMap<>();
+
+        // Names of filters without ready result by cache key, names of equivalent filters share one scan
+        Map<String, List<String>> pendingNames = new LinkedHashMap<>();
+        Map<String, CompiledFileScanFilter> pendingFilters = new HashMap<>();
+        batchRequest.scanFilters().forEach((name, filter) -> {
+            CompiledFileScanFilter compiledFilter = patternMatcher.compile(filter);
+            String cacheKey = cacheUtils.buildScanCacheKey(rootPath, depthLimit, compiledFilter);
+            Optional<FileScanResult> readyResultOptional = findReadyResult(cacheKey, filter);
+            if(readyResultOptional.isPresent()) {
+                results.put(name, readyResultOptional.get());
+            } else {
+                pendingNames.computeIfAbsent(cacheKey, _ -> new ArrayList<>()).add(name);
+                pendingFilters.put(cacheKey, compiledFilter);
+            }
+        });
+
+        if(!pendingNames.isEmpty()) {
+            // Whole batch is a single walk, so it's counted as one scan
+            if(getActiveScanCount() >= properties.getMaxActiveScans()) {
+                throw new ActiveScanCountLimitExceededException(
+                        "Cannot add new task, limit exceeded: " + properties.getMaxActiveScans()
+                );
+            }
+            startBatchWalk(rootPath, batchRequest, pendingNames, pendingFilters, results);
+        }
+
+        Map<String, FileScanResult> orderedResults = new LinkedHashMap<>();
+        batchRequest.scanFilters().keySet().forEach(name -> orderedResults.put(name, results.get(name)));
+        return orderedResults;
+    }
+
+    private void startBatchWalk(
+            Path rootPath,
+            FileScanBatchRequest batchRequest,
+            Map<String, List<String>> pendingNames,
+            Map<String, CompiledFileScanFilter> pendingFilters,
+            Map<String, FileScanResult> results
+    ) {
+        final Integer depthLimit = batchRequest.depthLimit();
+        int threads = Optional.ofNullable(batchRequest.threadsCount()).orElse(properties.getThreadsCount());
+        String walkId = UUID.randomUUID().toString();
+        List<BatchScanRunner.Member> members = new ArrayList<>();
+
+        pendingNames.forEach((cacheKey, names) -> {
+            CompiledFileScanFilter compiledFilter = pendingFilters.get(cacheKey);
+            for (String name : names) {
+                // Attach to running identical scan or add new member to the walk, atomically per cache key
+                final String token = UUID.randomUUID().toString();
+                final FileScanContext[] started = new FileScanContext[1];
+                FileScanContext context = scansByKey.compute(cacheKey, (key, running) -> {
+                    if(running != null && !running.getFuture().isDone() && running.tryAttach(token)) {
+                        log.info("Scan task of batch filter {} is running, attaching token {} to it", name, token);
+                        scans.put(token, running);
+                        return running;
+                    }
+
+                    ConcurrentMap<String, List<String>> matchedTerms = new ConcurrentHashMap<>();
+                    AtomicBoolean interrupted = new AtomicBoolean(false);
+                    ChunkedResultBuffer partial = resultBufferFactory.create(null, interrupted);
+                    FileScanJob job = new FileScanJob(
+                            token, rootPath, compiledFilter, depthLimit, threads, partial, matchedTerms, interrupted
+                    );
+                    // Future is completed by the walk
+                    CompletableFuture<List<String>> future = new CompletableFuture<>();
+                    members.add(new BatchScanRunner.Member(job, future));
+
+                    started[0] = new FileScanContext(future, partial, matchedTerms, interrupted, key, walkId);
+                    started[0].attach(token);
+                    scans.put(token, started[0]);
+                    return started[0];
+                });
+
+                // Cache token->key for future result retrieving by token
+                cacheUtils.putValueInCache(token, cacheKey, TOKEN_TO_KEY_CACHE_NAME);
+
+                if(started[0] != null) {
+                    // Every scan of the batch is cached by itself
+                    context.getFuture().whenComplete((result, throwable) -> onScanCompleted(
+                            context, rootPath, depthLimit, compiledFilter, null, result, throwable
+                    ));
+                }
+                results.put(name, toResult(
+                        token,
+                        context.getFuture().isDone(),
+                        context.isResultInterrupted(),
+                        context.isLimitReached(),
+                        context.getPartial().snapshot(),
+                        context.getMatchedTerms(),
+                        context.getAggregates(),
+                        0,
+                        Integer.MAX_VALUE
+                ));
+            }
+        });
+
+        if(members.isEmpty()) {
+            // All scans are attached to running ones
+            return;
+        }
+        try {
+            batchScanRunner.start(rootPath, depthLimit, threads, members);
+        } catch (RuntimeException e) {
+            // Complete scans of the batch, so they are not kept as running
+            members.forEach(member -> member.future().completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    /**
+     * @return max results count of the scan or {@code null} if all files are listed.
+     */
+    @Nullable
+    private static Integer maxResults(FileScanRequest scanRequest) {
+        if((scanRequest.maxResults() != null || scanRequest.exists()) && scanRequest.aggregation() != null) {
+            throw new IllegalArgumentException("Max results count can't be used with aggregation, use its limit");
+        }
+        if(scanRequest.sort() != null && scanRequest.aggregation() != null) {
+            throw new IllegalArgumentException("Sort can't be used with aggregation, its result is ordered by itself");
+        }
+        if(scanRequest.exists()) {
+            // Single file tells that some file matches
+            return 1;
+        }
+        if(scanRequest.maxResults() != null && scanRequest.maxResults() <= 0) {
+            throw new IllegalArgumentException("Max results count must be more than 0");
+        }
+        return scanRequest.maxResults();
+    }
+
+    /**
+     * @return live, cached or buffered completed result of the scan, so the scan doesn't need to be run.
+     */
+    private Optional<FileScanResult> findReadyResult(String cacheKey, Object scanRequest) {
+        // Live registration is kept up to date by watch events, so it's preferred over cached result
+        Optional<FileScanResult> liveResultOptional = liveScanService.getResult(cacheKey);
+        if(liveResultOptional.isPresent()) {
+            log.info("Scan task with request {} is registered as live, returns it's result", scanRequest);
+            return liveResultOptional;
+        }
 
         // Check if result is already cached
-        Optional<List<String>> cachedResultOptional = cacheUtils.getCachedResult(cacheKey, FULL_RESULT_CACHE_NAME);
+        Optional<FileScanResult> cachedResultOptional = getCachedResult(
+                cacheKey, FULL_RESULT_CACHE_NAME, false, 0, Integer.MAX_VALUE
+        );
         if(cachedResultOptional.isPresent()) {
             // Return file scan result with cached result
             log.info("Scan task with request {} already cached, returns it's result", scanRequest);
-            return new FileScanResult(null, true, cachedResultOptional.get());
+            return cachedResultOptional;
         }
 
         // No cache found by key
         // Check buffered scans for result
-        Optional<FileScanContext> bufferedScanOptional = getScanByCacheKey(cacheKey);
-        if(bufferedScanOptional.isPresent()) {
-            // Get result from scan
-            var future = bufferedScanOptional.get().getFuture();
-            if(future.isDone()) {
-                try {
-                    // Try to get and return file scan buffered result
-                    var result = future.get();
-                    log.info("Scan task with request {} is buffered, returns it's result", scanRequest);
-                    return new FileScanResult(null, true, result);
-                } catch (Exception e) {
-                    log.error("Failed to get scan result from buffered scan by key {}:", cacheKey, e);
-                    // Continue like buffered scan was not found
-                }
+        FileScanContext bufferedScan = scansByKey.get(cacheKey);
+        if(bufferedScan != null && bufferedScan.getFuture().isDone()) {
+            try {
+                // Try to get and return file scan buffered result
+                var result = bufferedScan.getFuture().get();
+                log.info("Scan task with request {} is buffered, returns it's result", scanRequest);
+                return Optional.of(toResult(
+                        null,
+                        true,
+                        bufferedScan.isResultInterrupted(),
+                        bufferedScan.isLimitReached(),
+                        result,
+                        bufferedScan.getMatchedTerms(),
+                        bufferedScan.getAggregates(),
+                        0,
+                        Integer.MAX_VALUE
+                ));
+            } catch (Exception e) {
+                log.error("Failed to get scan result from buffered scan by key {}:", cacheKey, e);
+                // Continue like buffered scan was not found
             }
         }
 
-        // No cached or buffered result was found
-        // Starting new scanner task
+        // Scan should be run
+        return Optional.empty();
+    }
+
+    /**
+     * @return context of a scan which is not started yet, its future is completed by the scan once it's started.
+     */
+    private FileScanContext createPendingScan(
+            String token,
+            FileScanRequest scanRequest,
+            String cacheKey,
+            @Nullable Integer maxResults
+    ) {
         log.info("Scan task with request {} doesn't cached or buffered. Creating and run scan task", scanRequest);
 
         // Check if active scans count already at maximum number
@@ -87,77 +390,206 @@ public class FileScanner {
             );
         }
 
+        AtomicBoolean interrupted = new AtomicBoolean(false);
+        // Full buffer sets interrupted flag, so all scan tasks stop once max results count is found
+        ChunkedResultBuffer partial = resultBufferFactory.create(maxResults, interrupted);
+        FileScanContext context = new FileScanContext(
+                new CompletableFuture<>(),
+                partial,
+                new ConcurrentHashMap<>(),
+                interrupted,
+                cacheKey,
+                cacheKey,
+                new ConcurrentHashMap<>()
+        );
+        context.attach(token);
+        return context;
+    }
+
+    /**
+     * Starts scan of pending context, it may read caches, metadata index and snapshots.
+     */
+    private void startPendingScan(
+            FileScanContext context,
+            String token,
+            FileScanRequest scanRequest,
+            Path rootPath,
+            CompiledFileScanFilter compiledFilter
+    ) {
         // Create scan task
-        final String token = UUID.randomUUID().toString();
         int threads = Optional.ofNullable(scanRequest.threadsCount()).orElse(properties.getThreadsCount());
 
-        ForkJoinPool pool = new ForkJoinPool(threads);
-        CopyOnWriteArrayList<String> partial = new CopyOnWriteArrayList<>();
-        AtomicBoolean interrupted = new AtomicBoolean(false);
+        ScanEngineType engineType = Optional.ofNullable(scanRequest.engine()).orElse(ScanEngineType.FORK_JOIN);
+        FileScanEngine engine = engines.get(engineType);
+        if(engine == null) {
+            throw new IllegalArgumentException("Unsupported scan engine: " + engineType);
+        }
 
-        RecursiveFileScanTask scanTask = new RecursiveFileScanTask(
-                patternMatcher,
-                Paths.get(scanRequest.directoryPath()),
-                scanRequest.scanFilter(),
+        FileScanJob job = new FileScanJob(
+                token,
+                rootPath,
+                compiledFilter,
                 scanRequest.depthLimit(),
-                0,
-                partial,
-                interrupted
+                threads,
+                context.getPartial(),
+                context.getMatchedTerms(),
+                context.isInterrupted()
         );
 
-        // Cache token->key for future result retrieving by token
-        cacheUtils.putValueInCache(token, cacheKey, TOKEN_TO_KEY_CACHE_NAME);
-
-        // Create & run async task in ForkJoinPool
-        CompletableFuture<List<String>> future = CompletableFuture.supplyAsync(() -> {
-            log.info("Scan task with token {} started", token);
-            return pool.invoke(scanTask);
-        }, pool);
-
-        scans.put(token, new FileScanContext(pool, future, partial, interrupted, cacheKey));
+        // Aggregation and sort are computed inside the walk, otherwise filter cached result of a broader scan
+        // if there is one, then try metadata index of the root, otherwise run async scan with the requested engine
+        CompletableFuture<List<String>> future;
+        boolean computedInWalk = scanRequest.aggregation() != null || scanRequest.sort() != null;
+        Optional<DerivedScanRunner.Source> derivedSource = computedInWalk
+                ? Optional.empty()
+                : derivedScanRunner.findSource(job);
+        if(scanRequest.aggregation() != null) {
+            future = aggregationScanRunner.start(job, scanRequest.aggregation(), context.getAggregates());
+        } else if(scanRequest.sort() != null) {
+            future = sortedScanRunner.start(job, scanRequest.sort());
+        } else if(derivedSource.isPresent()) {
+            future = derivedScanRunner.start(job, derivedSource.get());
+            context.markDerived();
+        } else {
+            Optional<MetadataIndex> metadataIndex = metadataIndexService.find(rootPath);
+            future = metadataIndex.isPresent()
+                    ? metadataIndexService.start(job, metadataIndex.get(), engine)
+                    : engine.start(job);
+        }
 
-        // Caching and logging after scan task completion
+        CompletableFuture<List<String>> contextFuture = context.getFuture();
         future.whenComplete((result, throwable) -> {
-            // Log completed state differently but save result anyway
             if(throwable != null) {
-                if(throwable instanceof CancellationException) {
-                    log.info("Scan task with token {} is completed by cancellation", token);
-                } else {
-                    log.warn("Scan task with token {} is completed by error: ", token, throwable);
-                }
+                contextFuture.completeExceptionally(throwable);
+            } else {
+                contextFuture.complete(result);
+            }
+        });
+        // Scan is stopped by cancellation of context future, which may be cancelled before the scan is started
+        contextFuture.whenComplete((_, throwable) -> {
+            if(throwable instanceof CancellationException) {
+                future.cancel(true);
+            }
+        });
+    }
 
-                // Use partial as result because when task is completed by cancellation/error then result will be null
-                result = partial;
+    private void onScanCompleted(
+            FileScanContext context,
+            Path rootPath,
+            @Nullable Integer depthLimit,
+            CompiledFileScanFilter compiledFilter,
+            @Nullable FileScanAggregation aggregation,
+            List<String> result,
+            Throwable throwable
+    ) {
+        String cacheKey = context.getCacheKey();
+        AtomicBoolean interrupted = context.isInterrupted();
+        boolean limitReached = context.isLimitReached();
+
+        // Log completed state differently but save result anyway
+        if(throwable != null) {
+            if(throwable instanceof CancellationException) {
+                log.info("Scan task with key {} is completed by cancellation", cacheKey);
             } else {
-                log.info(
-                        "Scan task with token {} is {}",
-                        token,
-                        scanTask.isInterrupted() ? "interrupted" : "fully completed"
-                );
+                log.warn("Scan task with key {} is completed by error: ", cacheKey, throwable);
             }
 
-            // Try to put result in cache
-            // Put in interrupted or final caches, depend on task status or throwable existence
-            String cacheName = scanTask.isInterrupted() || throwable != null
-                    ? INTERRUPTED_RESULT_CACHE_NAME
-                    : FULL_RESULT_CACHE_NAME;
-            boolean cached = cacheUtils.putValueInCache(cacheKey, result, cacheName);
+            // Use partial as result because when task is completed by cancellation/error then result will be null
+            result = context.getPartial().snapshot();
+        } else if(limitReached) {
+            log.info("Scan task with key {} is completed by max results count", cacheKey);
+        } else {
+            log.info(
+                    "Scan task with key {} is {}",
+                    cacheKey,
+                    interrupted.get() ? "interrupted" : "fully completed"
+            );
+        }
+        if(limitReached) {
+            // Tasks racing with the last added file may have stored terms of dropped files
+            context.getMatchedTerms().keySet().retainAll(new HashSet<>(result));
+        }
+
+        // Try to put result in cache
+        // Put in interrupted or final caches, depend on task status or throwable existence
+        // Result of scan stopped by max results count is complete, so it's put in final cache
+        String cacheName = context.isResultInterrupted() || throwable != null
+                ? INTERRUPTED_RESULT_CACHE_NAME
+                : FULL_RESULT_CACHE_NAME;
+        // Matched terms and aggregates are cached separately, result is considered cached only with them
+        // Aggregates are cached first, so they are present when the result manifest is visible
+        boolean cached = (aggregation == null || cacheUtils.putValueInCache(
+                cacheKey, new HashMap<>(context.getAggregates()), AGGREGATES_CACHE_NAME
+        )) && cacheUtils.putResultInCache(
+                cacheKey, result, context.getMatchedTerms(), limitReached, cacheName, MATCHED_TERMS_CACHE_NAME
+        );
 
-            if(cached) {
-                // Result is cached successfully, so no need to store in buffer
-                cleanup(token);
+        if(cached) {
+            if(cacheName.equals(FULL_RESULT_CACHE_NAME) && aggregation == null && !limitReached
+                    && !context.isDerived()) {
+                // Full result can answer narrower scans of the same root later,
+                // result stopped by max results count misses files and can't.
+                // Derived result doesn't see files created since its source was walked,
+                // so chains of derived results would never walk the tree again
+                filterCatalog.register(rootPath, depthLimit, cacheKey, compiledFilter);
+            }
+            // Result is cached successfully, so no need to store in buffer
+            // Tokens are read after removal from the index, so no token can be attached later
+            scansByKey.remove(cacheKey, context);
+            context.getTokens().forEach(this::cleanup);
+        } else {
+            // Can't cache result, so keep it in buffer in compact form instead of result buffer
+            // and mark this scan as completed for auto cleanup in future by scheduled method
+            ChunkedResultBuffer partial = context.getPartial();
+            List<String> compactResult;
+            ChunkedResultBuffer compactPartial;
+            if(partial.isSpilled()) {
+                // Spilled result is read from its file, so the buffer is kept until cleanup deletes the file
+                compactResult = result;
+                compactPartial = partial;
             } else {
-                // Can't cache result, so mark this scan as completed for auto cleanup in future by scheduled method
-                scans.get(token).completedNow();
+                // Result is encoded by chunks, so the whole result is not copied to encode it
+                compactResult = CompactResultList.of(result);
+                partial.close();
+                // Buffer of zero capacity is full, so compacted scan keeps its reached limit
+                compactPartial = limitReached ? new ChunkedResultBuffer(0, null) : new ChunkedResultBuffer();
             }
-        });
-
-        // Use 'future.isDone()' instead of 'false' and 'partial' instead of 'List.of()'
-        // in case when scan task is very fast to complete or already have any results at this moment
-        return new FileScanResult(token, future.isDone(), partial);
+            FileScanContext compacted = new FileScanContext(
+                    CompletableFuture.completedFuture(compactResult),
+                    compactPartial,
+                    context.getMatchedTerms(),
+                    interrupted,
+                    cacheKey,
+                    cacheKey,
+                    context.getAggregates()
+            );
+            compacted.completedNow();
+            scansByKey.replace(cacheKey, context, compacted);
+            for (String token : context.getTokens()) {
+                compacted.attach(token);
+                scans.replace(token, context, compacted);
+            }
+        }
     }
 
     public FileScanResult getResult(String token) {
+        return getResult(token, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param cursor count of result entries already received by client.
+     * @param limit max count of returned result entries.
+     * @return result entries added since the cursor and the next cursor value,
+     * result is completed only when scan is done and its last entry is returned.
+     */
+    public FileScanResult getResult(String token, int cursor, int limit) {
+        if(cursor < 0) {
+            throw new IllegalArgumentException("Cursor must be non-negative");
+        }
+        if(limit <= 0) {
+            throw new IllegalArgumentException("Limit must be more than 0");
+        }
+
         // Check if result is already cached
         // Get cache key from token caches
         log.debug("Searching scan result by token: {}", token);
@@ -167,32 +599,24 @@ public class FileScanner {
             log.debug("Found cache key by token: {}: {}", token, cacheKey);
 
             // Try to get cached full result
-            Optional<List<String>> fullResultOptional = cacheUtils.getCachedResult(
-                    cacheKey, FULL_RESULT_CACHE_NAME
+            Optional<FileScanResult> fullResultOptional = getCachedResult(
+                    cacheKey, FULL_RESULT_CACHE_NAME, false, cursor, limit
             );
             if(fullResultOptional.isPresent()) {
                 // Return cached file scan result with full result
                 log.debug("Found and return scan cached full result by token: {}", token);
-                return new FileScanResult(
-                        null,
-                        true,
-                        fullResultOptional.get()
-                );
+                return fullResultOptional.get();
             }
 
             // No cached full result
             // Try to get interrupted cache result
-            Optional<List<String>> interruptedCacheResult = cacheUtils.getCachedResult(
-                    cacheKey, INTERRUPTED_RESULT_CACHE_NAME
+            Optional<FileScanResult> interruptedCacheResult = getCachedResult(
+                    cacheKey, INTERRUPTED_RESULT_CACHE_NAME, true, cursor, limit
             );
             if(interruptedCacheResult.isPresent()) {
                 // Return cached file scan result with interrupted result
                 log.debug("Found and return scan cached interrupted result by token: {}", token);
-                return new FileScanResult(
-                        null,
-                        true,
-                        interruptedCacheResult.get()
-                );
+                return interruptedCacheResult.get();
             }
         }
 
@@ -208,19 +632,42 @@ public class FileScanner {
                 try {
                     completedResult = future.get();
                 } catch (Exception e) {
-                    throw new RuntimeException("Error while getting result", e);
-                } finally {
-                    // Don't store uncached results in buffered scans after showing it
                     cleanup(token);
+                    throw new RuntimeException("Error while getting result", e);
                 }
 
                 // Return completed result (can be full or interrupted)
                 log.debug("Found and return scan buffered completed result by token: {}", token);
-                return new FileScanResult(token, true, completedResult);
+                FileScanResult result = toResult(
+                        token,
+                        true,
+                        context.isResultInterrupted(),
+                        context.isLimitReached(),
+                        completedResult,
+                        context.getMatchedTerms(),
+                        context.getAggregates(),
+                        cursor,
+                        limit
+                );
+                if (result.completed()) {
+                    // Don't store uncached results in buffered scans after showing its last page
+                    cleanup(token);
+                }
+                return result;
             } else {
                 // Return partial result if scan is not done
                 log.debug("Found and return scan buffered partial result by token: {}", token);
-                return new FileScanResult(token, false, context.getPartial());
+                return toResult(
+                        token,
+                        false,
+                        false,
+                        false,
+                        context.getPartial().snapshot(),
+                        context.getMatchedTerms(),
+                        context.getAggregates(),
+                        cursor,
+                        limit
+                );
             }
         }
 
@@ -229,6 +676,14 @@ public class FileScanner {
         return null;
     }
 
+    /**
+     * @return {@code true} if scan is running or its result can be retrieved by token.
+     */
+    public boolean exists(String token) {
+        return scans.containsKey(token)
+                || cacheUtils.getCachedKeyByToken(token, TOKEN_TO_KEY_CACHE_NAME).isPresent();
+    }
+
     /**
      * @return {@code true} if scan found by token and successfully stopped.
      */
@@ -238,60 +693,149 @@ public class FileScanner {
             return false;
         }
 
-        context.isInterrupted().set(true);
+        if(context.detachIfShared(token)) {
+            // Scan keeps running for other tokens, killed token keeps only results found so far
+            log.info("Token {} is detached from shared scan with key {}", token, context.getCacheKey());
+            FileScanContext detached = new FileScanContext(
+                    CompletableFuture.completedFuture(context.getPartial().snapshot()),
+                    new ChunkedResultBuffer(),
+                    new HashMap<>(context.getMatchedTerms()),
+                    new AtomicBoolean(true),
+                    context.getCacheKey(),
+                    context.getCacheKey(),
+                    new HashMap<>(context.getAggregates())
+            );
+            detached.attach(token);
+            detached.completedNow();
+            scans.replace(token, context, detached);
+            return true;
+        }
+
         var future = context.getFuture();
         if(!future.isDone() && !future.isCancelled() && !future.isCompletedExceptionally()) {
             future.cancel(true);
         }
-        try(ForkJoinPool pool = context.getPool()) {
-            pool.shutdownNow();
-        }
 
         return true;
     }
 
+    // Result order is the same in buffer snapshots and in cache, so cursor stays valid when scan is cached
+    private static FileScanResult toResult(
+            String token,
+            boolean done,
+            boolean interrupted,
+            boolean limitReached,
+            List<String> result,
+            Map<String, List<String>> matchedTerms,
+            Map<String, FileScanAggregate> aggregates,
+            int cursor,
+            int limit
+    ) {
+        int size = result.size();
+        int from = Math.min(cursor, size);
+        int to = from + Math.min(limit, size - from);
+        if (from == 0 && to == size) {
+            return new FileScanResult(
+                    token, done, interrupted, limitReached, result, matchedTerms, size, aggregates
+            );
+        }
+
+        List<String> page = result.subList(from, to);
+        return new FileScanResult(
+                token,
+                done && to == size,
+                interrupted,
+                limitReached,
+                page,
+                pageValues(page, matchedTerms),
+                to,
+                pageValues(page, aggregates)
+        );
+    }
+
+    private Optional<FileScanResult> getCachedResult(
+            String cacheKey,
+            String cacheName,
+            boolean interrupted,
+            int cursor,
+            int limit
+    ) {
+        Optional<CachedResultManifest> manifestOptional = cacheUtils.getCachedManifest(cacheKey, cacheName);
+        if(manifestOptional.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Read only chunks of the requested page
+        CachedResultManifest manifest = manifestOptional.get();
+        int from = Math.min(cursor, manifest.size());
+        int to = from + Math.min(limit, manifest.size() - from);
+        return cacheUtils.getCachedResultPage(cacheKey, cacheName, manifest, from, to)
+                .map(page -> new FileScanResult(
+                        null,
+                        to == manifest.size(),
+                        interrupted,
+                        manifest.limitReached(),
+                        page,
+                        pageValues(
+                                page,
+                                cacheUtils.getCachedMatchedTermsPage(
+                                        cacheKey, MATCHED_TERMS_CACHE_NAME, manifest, from, to
+                                )
+                        ),
+                        to,
+                        // Only aggregation scans have aggregates, they are never empty for non-empty result
+                        page.isEmpty()
+                                ? Map.of()
+                                : pageValues(page, cacheUtils.getCachedAggregates(cacheKey, AGGREGATES_CACHE_NAME))
+                ));
+    }
+
+    // Values of result entries are kept only for entries of the page
+    private static <V> Map<String, V> pageValues(List<String> page, Map<String, V> values) {
+        if (values.isEmpty()) {
+            return values;
+        }
+
+        Map<String, V> pageValues = new HashMap<>();
+        for (String path : page) {
+            V value = values.get(path);
+            if (value != null) {
+                pageValues.put(path, value);
+            }
+        }
+        return pageValues;
+    }
+
     private void cleanup(String token) {
+        // Engine resources are released by engines themselves on scan completion
         FileScanContext context = scans.remove(token);
-        if (context != null) {
-            // Normal shutdown
-            try(ForkJoinPool pool = context.getPool()) {
-                pool.shutdown();
-                try {
-                    if (!pool.awaitTermination(NORMAL_SHUTDOWN_TIME_LIMIT_SECS, TimeUnit.SECONDS)) {
-                        // Force stop if it takes more time than limit
-                        pool.shutdownNow();
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    pool.shutdownNow();
-                }
-            }
+        if(context != null && context.detach(token)) {
+            // Last token of the scan is removed, spilled results of the scan are deleted with it
+            scansByKey.remove(context.getCacheKey(), context);
+            context.getPartial().close();
         }
     }
 
     private long getActiveScanCount() {
-        return scans.values().stream()
+        // Shared scans and scans of one batch walk are counted once
+        return scansByKey.values().stream()
                 .filter(context -> !context.getFuture().isDone()) // Is running
+                .map(FileScanContext::getWalkId)
+                .distinct()
                 .count();
     }
 
-    private Optional<FileScanContext> getScanByCacheKey(String cacheKey) {
-        return scans.values().stream()
-                .filter(scanContext -> scanContext.getCacheKey().equals(cacheKey))
-                .findFirst();
-    }
-
     // Scheduled cleanup for removing uncached completed scans from concurrent map
     // Schedule rate based on buffered cache ttl, but 4 times smaller for efficiency compromise
-    @Scheduled(fixedRateString = "${scanner.buffered-result-ttl}/4", timeUnit = TimeUnit.SECONDS)
+    @Scheduled(fixedRateString = "#{${scanner.buffered-result-ttl} / 4}", timeUnit = TimeUnit.SECONDS)
     private void scansScheduledCleanup() {
         log.info("Buffered scans cleanup started.");
         List<String> tokensToClear = new ArrayList<>();
         scans.forEach((key, scanContext) -> {
             if (scanContext.getFuture().isDone()
                     && scanContext.getCompletedAtMillis() != 0
-                    && (scanContext.getCompletedAtMillis() + properties.getBufferedResultTtl())
-                    > System.currentTimeMillis()
+                    && (scanContext.getCompletedAtMillis() + TimeUnit.SECONDS.toMillis(properties.getBufferedResultTtl()))
+                    <= System.currentTimeMillis()
             ) {
                 // Result is expired by ttl, add to clearing list
                 tokensToClear.add(key);
@@ -309,12 +853,13 @@ public class FileScanner {
     @PreDestroy
     public void destroyAll() {
         // Correct shutdown when application closes
+        // Shared executor is shut down by itself
         scans.forEach((_, context) -> {
+            context.isInterrupted().set(true);
             context.getFuture().cancel(true);
-            try(ForkJoinPool pool = context.getPool()) {
-                pool.shutdownNow();
-            }
+            context.getPartial().close();
         });
         scans.clear();
+        scansByKey.clear();
     }
 }
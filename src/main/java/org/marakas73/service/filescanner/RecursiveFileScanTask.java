@@ -1,6 +1,13 @@
 package org.marakas73.service.filescanner;
 
-import org.marakas73.model.FileScanFilter;
+import jakarta.annotation.Nullable;
+import org.marakas73.model.ScanEntry;
+import org.marakas73.service.filescanner.executor.ScanSlot;
+import org.marakas73.service.filescanner.result.ChunkedResultBuffer;
+import org.marakas73.service.filescanner.snapshot.DirectorySnapshot;
+import org.marakas73.service.filescanner.snapshot.DirectorySnapshotSession;
+import org.marakas73.service.filescanner.snapshot.FileSnapshot;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
 import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,33 +15,89 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.RecursiveTask;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
-public class RecursiveFileScanTask extends RecursiveTask<List<String>> {
+/**
+ * Scans single directory, matched files are appended to the shared result buffer.
+ * With entry sink all entries are passed to the sink instead of being matched.
+ * With directory snapshots the directory is not listed if it's not changed since previous scan,
+ * its files are taken from the snapshot instead and only files changed in place are matched again.
+ */
+public class RecursiveFileScanTask extends RecursiveAction {
     private static final Logger log = LoggerFactory.getLogger(RecursiveFileScanTask.class);
 
     private final FileScanFilterMatcher fileScanFilterMatcher;
     private final Path targetPath;
-    private final FileScanFilter scanFilter;
+    private final CompiledFileScanFilter scanFilter;
     private final int depthLimit;
     private final int currentDepth;
 
-    private final CopyOnWriteArrayList<String> partial;
+    private final ChunkedResultBuffer partial;
+    private final Map<String, List<String>> matchedTerms;
     private final AtomicBoolean interrupted;
+    private final ScanSlot slot;
+    @Nullable
+    private final Consumer<ScanEntry> entrySink;
+    @Nullable
+    private final DirectorySnapshotSession snapshots;
+    // Last modified time of target directory read by parent task, used only with snapshots
+    private final long targetModifiedMillis;
 
+    // Forked task holds a permit of the scan slot until it's completed
+    private boolean holdsPermit;
+
+    public RecursiveFileScanTask(
+            FileScanFilterMatcher fileScanFilterMatcher,
+            Path targetPath,
+            CompiledFileScanFilter scanFilter,
+            Integer depthLimit,
+            int currentDepth,
+            ChunkedResultBuffer partial,
+            Map<String, List<String>> matchedTerms,
+            AtomicBoolean interrupted,
+            ScanSlot slot
+    ) {
+        this(
+                fileScanFilterMatcher,
+                targetPath,
+                scanFilter,
+                depthLimit,
+                currentDepth,
+                partial,
+                matchedTerms,
+                interrupted,
+                slot,
+                null,
+                null,
+                -1
+        );
+    }
+
+    /**
+     * @param entrySink thread safe consumer of every walked entry, files are not matched if it's provided.
+     * @param snapshots directory snapshots of the scan, must not be used together with entry sink.
+     * @param targetModifiedMillis last modified time of target directory when snapshots are used.
+     */
     public RecursiveFileScanTask(
             FileScanFilterMatcher fileScanFilterMatcher,
             Path targetPath,
-            FileScanFilter scanFilter,
+            CompiledFileScanFilter scanFilter,
             Integer depthLimit,
             int currentDepth,
-            CopyOnWriteArrayList<String> partial,
-            AtomicBoolean interrupted
+            ChunkedResultBuffer partial,
+            Map<String, List<String>> matchedTerms,
+            AtomicBoolean interrupted,
+            ScanSlot slot,
+            @Nullable Consumer<ScanEntry> entrySink,
+            @Nullable DirectorySnapshotSession snapshots,
+            long targetModifiedMillis
     ) {
         this.fileScanFilterMatcher = fileScanFilterMatcher;
         this.targetPath = targetPath;
@@ -42,7 +105,12 @@ public class RecursiveFileScanTask extends RecursiveTask<List<String>> {
         this.depthLimit = depthLimit != null ? depthLimit : -1; // -1 is default value for unlimited depth
         this.currentDepth = currentDepth;
         this.partial = partial;
+        this.matchedTerms = matchedTerms;
         this.interrupted = interrupted;
+        this.slot = slot;
+        this.entrySink = entrySink;
+        this.snapshots = snapshots;
+        this.targetModifiedMillis = targetModifiedMillis;
     }
 
     public boolean isInterrupted() {
@@ -50,51 +118,93 @@ public class RecursiveFileScanTask extends RecursiveTask<List<String>> {
     }
 
     @Override
-    protected List<String> compute() {
+    protected void compute() {
+        try {
+            scanDirectory();
+        } finally {
+            if (holdsPermit) {
+                slot.release();
+            }
+        }
+    }
+
+    private void scanDirectory() {
         // Check interrupted flag
         if (interrupted.get() || Thread.currentThread().isInterrupted()) {
-            return Collections.emptyList();
+            return;
         }
 
         List<RecursiveFileScanTask> subTasks = new ArrayList<>();
-        List<String> localResults = new ArrayList<>();
+        List<RecursiveFileScanTask> inlineTasks = new ArrayList<>();
+
+        DirectorySnapshot unchanged = snapshots != null
+                ? snapshots.findUnchanged(targetPath, targetModifiedMillis)
+                : null;
+        if (unchanged != null) {
+            reuseSnapshot(unchanged, subTasks, inlineTasks);
+        } else {
+            listDirectory(subTasks, inlineTasks);
+        }
+
+        // Compute inline and collect forked subtask results after the directory stream is closed
+        // to not hold its handle while waiting
+        inlineTasks.forEach(RecursiveFileScanTask::invoke);
+        subTasks.forEach(RecursiveFileScanTask::join);
+    }
+
+    private void listDirectory(List<RecursiveFileScanTask> subTasks, List<RecursiveFileScanTask> inlineTasks) {
+        // Directory state for the snapshot, it's recorded only if directory is fully listed
+        List<String> subdirectories = snapshots != null ? new ArrayList<>() : null;
+        List<FileSnapshot> files = snapshots != null ? new ArrayList<>() : null;
+        Map<String, List<String>> matchedFileTerms = snapshots != null && scanFilter.reportsMatchedTerms()
+                ? new HashMap<>()
+                : Map.of();
+        // Entries changed after listing started are listed again by next scan
+        long listedAtMillis = System.currentTimeMillis();
+        boolean listed = false;
 
         // Safe directory scanning
-        try (var stream = Files.list(targetPath)) {
-            for (Path member : stream.toList()) {
+        try (var stream = Files.newDirectoryStream(targetPath)) {
+            for (Path member : stream) {
                 // Each iteration check interrupted flag
                 if (interrupted.get() || Thread.currentThread().isInterrupted()) {
-                    break;
+                    return;
+                }
+
+                // Read all entry metadata with a single call, filters must not touch the filesystem again
+                ScanEntry entry;
+                try {
+                    entry = ScanEntry.of(
+                            member.toAbsolutePath(),
+                            Files.readAttributes(member, BasicFileAttributes.class)
+                    );
+                } catch (IOException ioe) {
+                    // Entry disappeared or is a broken link, skip it
+                    continue;
+                }
+
+                if (entrySink != null) {
+                    entrySink.accept(entry);
                 }
 
-                if (Files.isRegularFile(member)) {
-                    if (fileScanFilterMatcher.matches(member.toAbsolutePath(), scanFilter)) {
-                        String pathStr = member.toAbsolutePath().toString();
-                        localResults.add(pathStr);
-                        partial.add(pathStr);
+                if (entry.isRegularFile() && entrySink == null) {
+                    FileSnapshot file = matchFile(entry, listedAtMillis, matchedFileTerms);
+                    if (snapshots != null) {
+                        files.add(file);
                     }
-                } else if (Files.isDirectory(member)) {
+                } else if (entry.isDirectory()) {
                     // depthLimit == -1 means that no depth limit provided
                     if(depthLimit != -1 && currentDepth > depthLimit) {
                         continue;
                     }
 
-                    RecursiveFileScanTask subTask = new RecursiveFileScanTask(
-                            fileScanFilterMatcher,
-                            member.toAbsolutePath(),
-                            scanFilter,
-                            depthLimit,
-                            currentDepth + 1,
-                            partial,
-                            interrupted
-                    );
-                    subTasks.add(subTask);
-                    subTask.fork();
+                    if (snapshots != null) {
+                        subdirectories.add(member.getFileName().toString());
+                    }
+                    addSubTask(entry.path(), entry.lastModifiedMillis(), subTasks, inlineTasks);
                 }
             }
-
-            // Collect subtask results
-            subTasks.forEach(subTask -> localResults.addAll(subTask.join()));
+            listed = true;
         } catch (IOException ioe) {
             log.error("IO Error while file scan {}:", targetPath, ioe);
             // Ignore any IO errors while scanning
@@ -104,6 +214,135 @@ public class RecursiveFileScanTask extends RecursiveTask<List<String>> {
             throw e;
         }
 
-        return localResults;
+        if (listed && snapshots != null) {
+            snapshots.recordListed(
+                    targetPath,
+                    new DirectorySnapshot(
+                            targetModifiedMillis, listedAtMillis, subdirectories, files, matchedFileTerms
+                    )
+            );
+        }
+    }
+
+    /**
+     * Matches file and appends it to the result if it's matched.
+     *
+     * @param fileTerms found terms of the directory files by name, it's filled only if filter reports them.
+     * @return state of the file for the directory snapshot.
+     */
+    private FileSnapshot matchFile(ScanEntry entry, long checkedAtMillis, Map<String, List<String>> fileTerms) {
+        String name = entry.path().getFileName().toString();
+        List<String> foundTerms = fileScanFilterMatcher.match(entry, scanFilter);
+        if (foundTerms != null) {
+            String pathStr = entry.path().toString();
+            if (scanFilter.reportsMatchedTerms()) {
+                matchedTerms.put(pathStr, foundTerms);
+                if (snapshots != null) {
+                    fileTerms.put(name, foundTerms);
+                }
+            }
+            partial.add(pathStr);
+        }
+        return new FileSnapshot(name, entry.size(), entry.lastModifiedMillis(), checkedAtMillis, foundTerms != null);
+    }
+
+    private void reuseSnapshot(
+            DirectorySnapshot snapshot,
+            List<RecursiveFileScanTask> subTasks,
+            List<RecursiveFileScanTask> inlineTasks
+    ) {
+        // Same entries as in previous scan, but files can be changed in place without changing the directory,
+        // so each of them is read again and matched again if its size or last modified time is changed
+        List<FileSnapshot> files = new ArrayList<>(snapshot.files().size());
+        Map<String, List<String>> matchedFileTerms = scanFilter.reportsMatchedTerms() ? new HashMap<>() : Map.of();
+        for (FileSnapshot file : snapshot.files()) {
+            if (interrupted.get() || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            Path member = targetPath.resolve(file.name());
+            long checkedAtMillis = System.currentTimeMillis();
+            ScanEntry entry;
+            try {
+                entry = ScanEntry.of(member, Files.readAttributes(member, BasicFileAttributes.class));
+            } catch (IOException ioe) {
+                // File was replaced in a way which didn't change this directory, skip it
+                continue;
+            }
+            if (!entry.isRegularFile()) {
+                continue;
+            }
+
+            if (!snapshots.isUnchanged(file, entry.size(), entry.lastModifiedMillis())) {
+                files.add(matchFile(entry, checkedAtMillis, matchedFileTerms));
+                continue;
+            }
+            if (file.matched()) {
+                String pathStr = member.toString();
+                if (scanFilter.reportsMatchedTerms()) {
+                    List<String> foundTerms = snapshot.matchedTerms().getOrDefault(file.name(), List.of());
+                    matchedTerms.put(pathStr, foundTerms);
+                    matchedFileTerms.put(file.name(), foundTerms);
+                }
+                partial.add(pathStr);
+            }
+            files.add(file);
+        }
+
+        for (String name : snapshot.subdirectories()) {
+            if (interrupted.get() || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            Path subdirectory = targetPath.resolve(name);
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(subdirectory, BasicFileAttributes.class);
+            } catch (IOException ioe) {
+                // Subdirectory was replaced in a way which didn't change this directory, skip it
+                continue;
+            }
+            if (attributes.isDirectory()) {
+                addSubTask(subdirectory, attributes.lastModifiedTime().toMillis(), subTasks, inlineTasks);
+            }
+        }
+        // Listing time is kept, so max age of the listing is not extended by reuse
+        snapshots.recordReused(targetPath, new DirectorySnapshot(
+                snapshot.lastModifiedMillis(),
+                snapshot.listedAtMillis(),
+                snapshot.subdirectories(),
+                files,
+                matchedFileTerms
+        ));
+    }
+
+    private void addSubTask(
+            Path directory,
+            long lastModifiedMillis,
+            List<RecursiveFileScanTask> subTasks,
+            List<RecursiveFileScanTask> inlineTasks
+    ) {
+        RecursiveFileScanTask subTask = new RecursiveFileScanTask(
+                fileScanFilterMatcher,
+                directory,
+                scanFilter,
+                depthLimit,
+                currentDepth + 1,
+                partial,
+                matchedTerms,
+                interrupted,
+                slot,
+                entrySink,
+                snapshots,
+                lastModifiedMillis
+        );
+        if (slot.tryAcquire()) {
+            subTask.holdsPermit = true;
+            subTasks.add(subTask);
+            subTask.fork();
+        } else {
+            // Scan already uses its share of workers, compute subdirectory in the current one
+            inlineTasks.add(subTask);
+        }
     }
 }
@@ -0,0 +1,25 @@
+package org.marakas73.service.filescanner.aggregation;
+
+import org.marakas73.model.FileScanAggregate;
+import org.marakas73.model.ScanEntry;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregation state of a single worker, it's filled without synchronization
+ * and merged with states of other workers when the walk is completed.
+ */
+interface AggregateAccumulator {
+
+    void add(ScanEntry entry);
+
+    void merge(AggregateAccumulator other);
+
+    /**
+     * Puts totals of result entries to aggregates.
+     *
+     * @return keys of result entries in result order.
+     */
+    List<String> finish(Map<String, FileScanAggregate> aggregates);
+}
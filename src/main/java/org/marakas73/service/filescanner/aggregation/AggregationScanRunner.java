@@ -0,0 +1,142 @@
+package org.marakas73.service.filescanner.aggregation;
+
+import org.marakas73.model.FileScanAggregate;
+import org.marakas73.model.FileScanAggregation;
+import org.marakas73.model.ScanEntry;
+import org.marakas73.service.filescanner.RecursiveFileScanTask;
+import org.marakas73.service.filescanner.engine.FileScanJob;
+import org.marakas73.service.filescanner.executor.ScanSlot;
+import org.marakas73.service.filescanner.executor.SharedScanExecutor;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
+import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Computes aggregation of matched files inside the walk instead of collecting their paths.
+ * Each worker fills its own accumulator, accumulators are merged when the walk is completed,
+ * so memory depends only on the limit or the count of groups, not on the count of matched files.
+ */
+@Component
+public class AggregationScanRunner {
+    private static final Logger log = LoggerFactory.getLogger(AggregationScanRunner.class);
+
+    private static final String ROOT_GROUP_KEY = ".";
+    // Top entries of each worker are kept in memory, so limit is bounded
+    private static final int MAX_LIMIT = 100_000;
+
+    private final FileScanFilterMatcher fileScanFilterMatcher;
+    private final SharedScanExecutor executor;
+
+    public AggregationScanRunner(FileScanFilterMatcher fileScanFilterMatcher, SharedScanExecutor executor) {
+        this.fileScanFilterMatcher = fileScanFilterMatcher;
+        this.executor = executor;
+    }
+
+    /**
+     * @param aggregates totals of result entries, filled when the walk is completed.
+     * @return future of result entry keys: paths for top modes, group keys for group modes.
+     */
+    public CompletableFuture<List<String>> start(
+            FileScanJob job,
+            FileScanAggregation aggregation,
+            Map<String, FileScanAggregate> aggregates
+    ) {
+        Supplier<AggregateAccumulator> accumulatorFactory = accumulatorFactory(job.rootPath(), aggregation);
+        CompiledFileScanFilter filter = job.filter();
+        ConcurrentMap<Thread, AggregateAccumulator> accumulators = new ConcurrentHashMap<>();
+        ScanSlot slot = executor.register(job.parallelism());
+
+        CompletableFuture<List<String>> future = CompletableFuture.supplyAsync(() -> {
+            log.info("Scan task with token {} started, aggregation {}", job.token(), aggregation);
+            // Matched entries are passed to accumulators, so result buffer and matched terms are not filled
+            new RecursiveFileScanTask(
+                    fileScanFilterMatcher,
+                    job.rootPath(),
+                    filter,
+                    job.depthLimit(),
+                    0,
+                    job.partial(),
+                    Map.of(),
+                    job.interrupted(),
+                    slot,
+                    entry -> {
+                        if (entry.isRegularFile() && fileScanFilterMatcher.match(entry, filter) != null) {
+                            workerAccumulator(accumulators, accumulatorFactory).add(entry);
+                        }
+                    },
+                    null,
+                    -1
+            ).invoke();
+
+            // All tasks are joined, so workers don't use their accumulators anymore
+            AggregateAccumulator merged = accumulatorFactory.get();
+            accumulators.values().forEach(merged::merge);
+            return merged.finish(aggregates);
+        }, executor.getPool());
+
+        // Give scan share of workers back to other scans
+        future.whenComplete((_, _) -> slot.close());
+        return future;
+    }
+
+    private static AggregateAccumulator workerAccumulator(
+            ConcurrentMap<Thread, AggregateAccumulator> accumulators,
+            Supplier<AggregateAccumulator> accumulatorFactory
+    ) {
+        Thread worker = Thread.currentThread();
+        AggregateAccumulator accumulator = accumulators.get(worker);
+        return accumulator != null ? accumulator : accumulators.computeIfAbsent(worker, _ -> accumulatorFactory.get());
+    }
+
+    private static Supplier<AggregateAccumulator> accumulatorFactory(Path rootPath, FileScanAggregation aggregation) {
+        Integer limit = aggregation.limit();
+        if (limit != null && (limit <= 0 || limit > MAX_LIMIT)) {
+            throw new IllegalArgumentException("Aggregation limit must be in range from 1 to " + MAX_LIMIT);
+        }
+
+        int rootNameCount = rootPath.getNameCount();
+        return switch (aggregation.mode()) {
+            case LARGEST -> {
+                int top = requireLimit(aggregation);
+                yield () -> new TopEntriesAccumulator(top, Comparator.comparingLong(ScanEntry::size));
+            }
+            case NEWEST -> {
+                int top = requireLimit(aggregation);
+                yield () -> new TopEntriesAccumulator(top, Comparator.comparingLong(ScanEntry::lastModifiedMillis));
+            }
+            case BY_EXTENSION -> () -> new GroupTotalsAccumulator(AggregationScanRunner::extension, limit);
+            case BY_TOP_LEVEL_DIRECTORY -> () -> new GroupTotalsAccumulator(
+                    entry -> entry.path().getNameCount() > rootNameCount + 1
+                            ? entry.path().getName(rootNameCount).toString()
+                            : ROOT_GROUP_KEY,
+                    limit
+            );
+        };
+    }
+
+    private static int requireLimit(FileScanAggregation aggregation) {
+        if (aggregation.limit() == null) {
+            throw new IllegalArgumentException("Limit is required for " + aggregation.mode() + " aggregation");
+        }
+        return aggregation.limit();
+    }
+
+    private static String extension(ScanEntry entry) {
+        String name = entry.path().getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        // Leading dot starts a hidden file name, not an extension
+        return dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
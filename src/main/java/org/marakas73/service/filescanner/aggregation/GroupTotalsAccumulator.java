@@ -0,0 +1,68 @@
+package org.marakas73.service.filescanner.aggregation;
+
+import jakarta.annotation.Nullable;
+import org.marakas73.model.FileScanAggregate;
+import org.marakas73.model.ScanEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Sums count and size of files by group key, memory depends only on the count of groups.
+ */
+final class GroupTotalsAccumulator implements AggregateAccumulator {
+    private static final int COUNT = 0;
+    private static final int TOTAL_BYTES = 1;
+    private static final int LAST_MODIFIED = 2;
+
+    private final Function<ScanEntry, String> groupKey;
+    @Nullable
+    private final Integer limit;
+    private final Map<String, long[]> totals = new HashMap<>();
+
+    GroupTotalsAccumulator(Function<ScanEntry, String> groupKey, @Nullable Integer limit) {
+        this.groupKey = groupKey;
+        this.limit = limit;
+    }
+
+    @Override
+    public void add(ScanEntry entry) {
+        long[] groupTotals = totals.computeIfAbsent(groupKey.apply(entry), _ -> new long[]{0, 0, Long.MIN_VALUE});
+        groupTotals[COUNT]++;
+        groupTotals[TOTAL_BYTES] += entry.size();
+        groupTotals[LAST_MODIFIED] = Math.max(groupTotals[LAST_MODIFIED], entry.lastModifiedMillis());
+    }
+
+    @Override
+    public void merge(AggregateAccumulator other) {
+        ((GroupTotalsAccumulator) other).totals.forEach((key, otherTotals) -> totals.merge(key, otherTotals, (a, b) -> {
+            a[COUNT] += b[COUNT];
+            a[TOTAL_BYTES] += b[TOTAL_BYTES];
+            a[LAST_MODIFIED] = Math.max(a[LAST_MODIFIED], b[LAST_MODIFIED]);
+            return a;
+        }));
+    }
+
+    @Override
+    public List<String> finish(Map<String, FileScanAggregate> aggregates) {
+        // The biggest groups go first
+        List<String> keys = new ArrayList<>(totals.keySet());
+        keys.sort(Comparator.<String>comparingLong(key -> totals.get(key)[TOTAL_BYTES]).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        if (limit != null && keys.size() > limit) {
+            keys = new ArrayList<>(keys.subList(0, limit));
+        }
+
+        for (String key : keys) {
+            long[] groupTotals = totals.get(key);
+            aggregates.put(key, new FileScanAggregate(
+                    groupTotals[COUNT], groupTotals[TOTAL_BYTES], groupTotals[LAST_MODIFIED]
+            ));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,59 @@
+package org.marakas73.service.filescanner.aggregation;
+
+import org.marakas73.model.FileScanAggregate;
+import org.marakas73.model.ScanEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps only the top entries by a metric in a bounded min-heap, so memory doesn't depend on matched files count.
+ */
+final class TopEntriesAccumulator implements AggregateAccumulator {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int limit;
+    // Ascending order, the worst kept entry is on top of the heap
+    private final Comparator<ScanEntry> order;
+    private final PriorityQueue<ScanEntry> top;
+
+    TopEntriesAccumulator(int limit, Comparator<ScanEntry> byMetric) {
+        this.limit = limit;
+        // Entries with equal metric are ordered by path, so result doesn't depend on walk order
+        this.order = byMetric.thenComparing(entry -> entry.path().toString(), Comparator.reverseOrder());
+        // Heap grows only with matched entries, so big limit doesn't allocate up front
+        this.top = new PriorityQueue<>(Math.min(limit, INITIAL_CAPACITY) + 1, order);
+    }
+
+    @Override
+    public void add(ScanEntry entry) {
+        if (top.size() < limit) {
+            top.add(entry);
+        } else if (order.compare(entry, top.peek()) > 0) {
+            top.poll();
+            top.add(entry);
+        }
+    }
+
+    @Override
+    public void merge(AggregateAccumulator other) {
+        ((TopEntriesAccumulator) other).top.forEach(this::add);
+    }
+
+    @Override
+    public List<String> finish(Map<String, FileScanAggregate> aggregates) {
+        List<ScanEntry> sorted = new ArrayList<>(top);
+        sorted.sort(order.reversed());
+
+        List<String> keys = new ArrayList<>(sorted.size());
+        for (ScanEntry entry : sorted) {
+            String pathStr = entry.path().toString();
+            keys.add(pathStr);
+            aggregates.put(pathStr, new FileScanAggregate(1, entry.size(), entry.lastModifiedMillis()));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,122 @@
+package org.marakas73.service.filescanner.batch;
+
+import jakarta.annotation.Nullable;
+import org.marakas73.model.ScanEntry;
+import org.marakas73.service.filescanner.RecursiveFileScanTask;
+import org.marakas73.service.filescanner.engine.FileScanJob;
+import org.marakas73.service.filescanner.executor.ScanSlot;
+import org.marakas73.service.filescanner.executor.SharedScanExecutor;
+import org.marakas73.service.filescanner.result.ChunkedResultBuffer;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
+import org.marakas73.service.filtermatcher.CompiledFilterBatch;
+import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs scans of one root with different filters in a single walk. Metadata of each entry is read once
+ * and matched against all filters, content of each file is read at most once for all content predicates.
+ */
+@Component
+public class BatchScanRunner {
+    private static final Logger log = LoggerFactory.getLogger(BatchScanRunner.class);
+
+    private final FileScanFilterMatcher fileScanFilterMatcher;
+    private final SharedScanExecutor executor;
+
+    public BatchScanRunner(FileScanFilterMatcher fileScanFilterMatcher, SharedScanExecutor executor) {
+        this.fileScanFilterMatcher = fileScanFilterMatcher;
+        this.executor = executor;
+    }
+
+    /**
+     * Scan of the batch, its future is completed with the job result when the walk is completed.
+     */
+    public record Member(FileScanJob job, CompletableFuture<List<String>> future) {
+    }
+
+    /**
+     * Starts walk shared by all members, walk is stopped when all members are interrupted.
+     */
+    public void start(Path rootPath, @Nullable Integer depthLimit, int parallelism, List<Member> members) {
+        CompiledFilterBatch batch = fileScanFilterMatcher.compileBatch(
+                members.stream().map(member -> member.job().filter()).toList()
+        );
+        AtomicBoolean walkInterrupted = new AtomicBoolean(false);
+        ScanSlot slot = executor.register(parallelism);
+
+        CompletableFuture.runAsync(() -> {
+            log.info("Batch scan of {} with {} filters started", rootPath, members.size());
+            // Entries are passed to the sink, so filter, result buffer and matched terms of the walk are not used
+            new RecursiveFileScanTask(
+                    fileScanFilterMatcher,
+                    rootPath,
+                    CompiledFileScanFilter.matchAll(),
+                    depthLimit,
+                    0,
+                    new ChunkedResultBuffer(),
+                    Map.of(),
+                    walkInterrupted,
+                    slot,
+                    entry -> matchEntry(entry, batch, members, walkInterrupted),
+                    null,
+                    -1
+            ).invoke();
+        }, executor.getPool()).whenComplete((_, throwable) -> {
+            // Give scan share of workers back to other scans
+            slot.close();
+            for (Member member : members) {
+                if (throwable != null) {
+                    member.future().completeExceptionally(throwable);
+                } else {
+                    member.future().complete(member.job().partial().snapshot());
+                }
+            }
+        });
+    }
+
+    private void matchEntry(
+            ScanEntry entry,
+            CompiledFilterBatch batch,
+            List<Member> members,
+            AtomicBoolean walkInterrupted
+    ) {
+        // Interrupted members are not matched anymore
+        BitSet skipped = new BitSet(members.size());
+        for (int i = 0; i < members.size(); i++) {
+            if (members.get(i).job().interrupted().get()) {
+                skipped.set(i);
+            }
+        }
+        if (skipped.cardinality() == members.size()) {
+            walkInterrupted.set(true);
+            return;
+        }
+        if (!entry.isRegularFile()) {
+            return;
+        }
+
+        List<List<String>> found = fileScanFilterMatcher.match(entry, batch, skipped);
+        String pathStr = entry.path().toString();
+        for (int i = 0; i < members.size(); i++) {
+            List<String> foundTerms = found.get(i);
+            if (foundTerms == null) {
+                continue;
+            }
+
+            FileScanJob job = members.get(i).job();
+            if (job.filter().reportsMatchedTerms()) {
+                job.matchedTerms().put(pathStr, foundTerms);
+            }
+            job.partial().add(pathStr);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.marakas73.service.filescanner.derived;
+
+import jakarta.annotation.Nullable;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filters of cached full results grouped by scan root and depth limit.
+ * Used to find cached results which contain all files of a narrower scan.
+ */
+@Component
+public class CachedFilterCatalog {
+    private static final int MAX_SCOPES = 1024;
+    private static final int MAX_FILTERS_PER_SCOPE = 32;
+
+    // Least recently used scopes are dropped first
+    private final Map<String, Deque<CatalogEntry>> scopes = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Deque<CatalogEntry>> eldest) {
+            return size() > MAX_SCOPES;
+        }
+    };
+
+    public record CatalogEntry(String cacheKey, CompiledFileScanFilter filter) {
+    }
+
+    public synchronized void register(
+            Path rootPath,
+            @Nullable Integer depthLimit,
+            String cacheKey,
+            CompiledFileScanFilter filter
+    ) {
+        Deque<CatalogEntry> entries = scopes.computeIfAbsent(scopeKey(rootPath, depthLimit), key -> new ArrayDeque<>());
+        entries.removeIf(entry -> entry.cacheKey().equals(cacheKey));
+        entries.addFirst(new CatalogEntry(cacheKey, filter));
+        if (entries.size() > MAX_FILTERS_PER_SCOPE) {
+            entries.removeLast();
+        }
+    }
+
+    /**
+     * @return entries of the same root and depth limit whose filters are broader than the given one.
+     */
+    public synchronized List<CatalogEntry> findBroader(
+            Path rootPath,
+            @Nullable Integer depthLimit,
+            CompiledFileScanFilter filter
+    ) {
+        Deque<CatalogEntry> entries = scopes.get(scopeKey(rootPath, depthLimit));
+        if (entries == null) {
+            return List.of();
+        }
+
+        List<CatalogEntry> broader = new ArrayList<>();
+        for (CatalogEntry entry : entries) {
+            if (filter.isNarrowerThan(entry.filter())) {
+                broader.add(entry);
+            }
+        }
+        return broader;
+    }
+
+    public synchronized void remove(Path rootPath, @Nullable Integer depthLimit, String cacheKey) {
+        Deque<CatalogEntry> entries = scopes.get(scopeKey(rootPath, depthLimit));
+        if (entries != null) {
+            entries.removeIf(entry -> entry.cacheKey().equals(cacheKey));
+        }
+    }
+
+    private static String scopeKey(Path rootPath, @Nullable Integer depthLimit) {
+        return rootPath + "|" + (depthLimit != null ? depthLimit : -1);
+    }
+}
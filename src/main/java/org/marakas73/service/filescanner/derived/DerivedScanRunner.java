@@ -0,0 +1,150 @@
+package org.marakas73.service.filescanner.derived;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.marakas73.model.CachedResultManifest;
+import org.marakas73.model.ScanEntry;
+import org.marakas73.service.filescanner.FileScanner;
+import org.marakas73.service.filescanner.engine.FileScanJob;
+import org.marakas73.service.filescanner.executor.SharedScanExecutor;
+import org.marakas73.service.filescanner.util.FileScanCacheUtils;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
+import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers a scan by filtering cached full result of a broader scan with the same root and depth limit,
+ * so the tree is not walked again. Only predicates which differ from the broader filter are checked.
+ */
+@Component
+public class DerivedScanRunner {
+    private static final Logger log = LoggerFactory.getLogger(DerivedScanRunner.class);
+
+    private final CachedFilterCatalog catalog;
+    private final FileScanCacheUtils cacheUtils;
+    private final FileScanFilterMatcher fileScanFilterMatcher;
+    private final SharedScanExecutor executor;
+    private final Counter derivedHits;
+
+    public DerivedScanRunner(
+            CachedFilterCatalog catalog,
+            FileScanCacheUtils cacheUtils,
+            FileScanFilterMatcher fileScanFilterMatcher,
+            SharedScanExecutor executor,
+            MeterRegistry meterRegistry
+    ) {
+        this.catalog = catalog;
+        this.cacheUtils = cacheUtils;
+        this.fileScanFilterMatcher = fileScanFilterMatcher;
+        this.executor = executor;
+        this.derivedHits = Counter.builder("file.scanner.cache.derived.hits")
+                .description("Scans answered by filtering cached result of a broader scan")
+                .register(meterRegistry);
+    }
+
+    public record Source(String cacheKey, CompiledFileScanFilter filter, CachedResultManifest manifest) {
+    }
+
+    /**
+     * @return the smallest cached full result which contains all files matched by the job, if any.
+     */
+    public Optional<Source> findSource(FileScanJob job) {
+        Source best = null;
+        for (var entry : catalog.findBroader(job.rootPath(), job.depthLimit(), job.filter())) {
+            Optional<CachedResultManifest> manifest = cacheUtils.getCachedManifest(
+                    entry.cacheKey(), FileScanner.FULL_RESULT_CACHE_NAME
+            );
+            if (manifest.isEmpty()) {
+                // Cached result is expired
+                catalog.remove(job.rootPath(), job.depthLimit(), entry.cacheKey());
+            } else if (best == null || manifest.get().size() < best.manifest().size()) {
+                best = new Source(entry.cacheKey(), entry.filter(), manifest.get());
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    public CompletableFuture<List<String>> start(FileScanJob job, Source source) {
+        derivedHits.increment();
+        return CompletableFuture.supplyAsync(() -> {
+            log.info("Scan task with token {} is derived from cached result {}", job.token(), source.cacheKey());
+            filterSource(job, source);
+            return job.partial().snapshot();
+        }, executor.getPool());
+    }
+
+    private void filterSource(FileScanJob job, Source source) {
+        CompiledFileScanFilter filter = job.filter();
+        boolean checkName = !filter.hasSameNamePredicate(source.filter());
+        boolean checkSize = !filter.hasSameSizePredicate(source.filter());
+        boolean checkModificationTime = !filter.hasSameModificationTimePredicate(source.filter());
+        // Matched terms of the same content predicate can be taken from cache when source reported them
+        boolean checkContent = !filter.hasSameContentPredicate(source.filter())
+                || filter.reportsMatchedTerms() && !source.filter().reportsMatchedTerms();
+        boolean reuseMatchedTerms = filter.reportsMatchedTerms() && !checkContent;
+
+        CachedResultManifest manifest = source.manifest();
+        for (int from = 0; from < manifest.size(); from += manifest.chunkSize()) {
+            int to = Math.min(from + manifest.chunkSize(), manifest.size());
+            List<String> page = cacheUtils.getCachedResultPage(
+                    source.cacheKey(), FileScanner.FULL_RESULT_CACHE_NAME, manifest, from, to
+            ).orElseThrow(() -> new IllegalStateException("Cached result " + source.cacheKey() + " is expired"));
+            Map<String, List<String>> sourceTerms = reuseMatchedTerms
+                    ? cacheUtils.getCachedMatchedTermsPage(
+                            source.cacheKey(), FileScanner.MATCHED_TERMS_CACHE_NAME, manifest, from, to
+                    )
+                    : Map.of();
+
+            for (String pathStr : page) {
+                if (job.interrupted().get() || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                Path path = Paths.get(pathStr);
+                // Name is checked in memory, other predicates need file metadata
+                if (checkName && !filter.matchesName(path)) {
+                    continue;
+                }
+
+                List<String> foundTerms = sourceTerms.getOrDefault(pathStr, List.of());
+                if (checkSize || checkModificationTime || checkContent) {
+                    ScanEntry entry;
+                    try {
+                        entry = ScanEntry.of(path, Files.readAttributes(path, BasicFileAttributes.class));
+                    } catch (IOException ioe) {
+                        // File is deleted since source was cached
+                        continue;
+                    }
+                    if (!entry.isRegularFile()
+                            || checkSize && !filter.matchesSize(entry)
+                            || checkModificationTime && !filter.matchesModificationTime(entry)) {
+                        continue;
+                    }
+                    if (checkContent) {
+                        foundTerms = fileScanFilterMatcher.matchByTextContent(entry, filter);
+                        if (foundTerms == null) {
+                            continue;
+                        }
+                    }
+                }
+
+                if (filter.reportsMatchedTerms()) {
+                    job.matchedTerms().put(pathStr, foundTerms);
+                }
+                job.partial().add(pathStr);
+            }
+        }
+    }
+}
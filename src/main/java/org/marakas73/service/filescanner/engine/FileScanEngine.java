@@ -0,0 +1,17 @@
+package org.marakas73.service.filescanner.engine;
+
+import org.marakas73.model.ScanEngineType;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface FileScanEngine {
+    ScanEngineType getType();
+
+    /**
+     * Starts scan asynchronously. Cancellation of returned future must stop the scan and release engine resources.
+     *
+     * @return future of all found file paths, it's a snapshot of job partial results buffer.
+     */
+    CompletableFuture<List<String>> start(FileScanJob job);
+}
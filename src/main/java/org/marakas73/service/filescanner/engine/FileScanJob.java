@@ -0,0 +1,26 @@
+package org.marakas73.service.filescanner.engine;
+
+import jakarta.annotation.Nullable;
+import org.marakas73.service.filescanner.result.ChunkedResultBuffer;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Everything a scan engine needs to run a single scan. Engines must produce the same
+ * partial results and react to the interrupted flag the same way.
+ */
+public record FileScanJob(
+        String token,
+        Path rootPath,
+        CompiledFileScanFilter filter,
+        @Nullable Integer depthLimit,
+        int parallelism,
+        ChunkedResultBuffer partial,
+        Map<String, List<String>> matchedTerms,
+        AtomicBoolean interrupted
+) {
+}
@@ -0,0 +1,95 @@
+package org.marakas73.service.filescanner.engine;
+
+import org.marakas73.model.ScanEngineType;
+import org.marakas73.service.filescanner.RecursiveFileScanTask;
+import org.marakas73.service.filescanner.executor.ScanSlot;
+import org.marakas73.service.filescanner.executor.SharedScanExecutor;
+import org.marakas73.service.filescanner.snapshot.DirectorySnapshotSession;
+import org.marakas73.service.filescanner.snapshot.DirectorySnapshotStore;
+import org.marakas73.service.filescanner.util.FileScanCacheUtils;
+import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class ForkJoinFileScanEngine implements FileScanEngine {
+    private static final Logger log = LoggerFactory.getLogger(ForkJoinFileScanEngine.class);
+
+    private final FileScanFilterMatcher fileScanFilterMatcher;
+    private final SharedScanExecutor scanExecutor;
+    private final DirectorySnapshotStore snapshotStore;
+    private final FileScanCacheUtils cacheUtils;
+
+    public ForkJoinFileScanEngine(
+            FileScanFilterMatcher fileScanFilterMatcher,
+            SharedScanExecutor scanExecutor,
+            DirectorySnapshotStore snapshotStore,
+            FileScanCacheUtils cacheUtils
+    ) {
+        this.fileScanFilterMatcher = fileScanFilterMatcher;
+        this.scanExecutor = scanExecutor;
+        this.snapshotStore = snapshotStore;
+        this.cacheUtils = cacheUtils;
+    }
+
+    @Override
+    public ScanEngineType getType() {
+        return ScanEngineType.FORK_JOIN;
+    }
+
+    @Override
+    public CompletableFuture<List<String>> start(FileScanJob job) {
+        // Parallelism is a cap of the scan in the shared executor
+        ScanSlot slot = scanExecutor.register(job.parallelism());
+
+        CompletableFuture<List<String>> future = CompletableFuture.supplyAsync(() -> {
+            log.info("Scan task with token {} started", job.token());
+
+            // Snapshots are stored by cache key, so they are invalidated by any change of root, depth limit or filter.
+            // Snapshot file is read here, not by the caller, as it may be big
+            String snapshotKey = cacheUtils.buildScanCacheKey(job.rootPath(), job.depthLimit(), job.filter());
+            DirectorySnapshotSession snapshots = snapshotStore.isEnabled() ? snapshotStore.open(snapshotKey) : null;
+            long rootModifiedMillis;
+            try {
+                rootModifiedMillis = Files.getLastModifiedTime(job.rootPath()).toMillis();
+            } catch (IOException e) {
+                // Root is listed anyway and its error is reported by the scan task
+                rootModifiedMillis = -1;
+            }
+
+            new RecursiveFileScanTask(
+                    fileScanFilterMatcher,
+                    job.rootPath(),
+                    job.filter(),
+                    job.depthLimit(),
+                    0,
+                    job.partial(),
+                    job.matchedTerms(),
+                    job.interrupted(),
+                    slot,
+                    null,
+                    snapshots,
+                    rootModifiedMillis
+            ).invoke();
+            if (snapshots != null && !job.interrupted().get()) {
+                // Snapshots of incomplete scan would miss matches of not scanned directories
+                snapshotStore.save(snapshotKey, snapshots);
+                log.info(
+                        "Scan task with token {} listed {} directories, reused {} unchanged ones",
+                        job.token(), snapshots.getListedCount(), snapshots.getReusedCount()
+                );
+            }
+            return job.partial().snapshot();
+        }, scanExecutor.getPool());
+
+        // Give scan share of workers back to other scans
+        future.whenComplete((_, _) -> slot.close());
+        return future;
+    }
+}
@@ -0,0 +1,281 @@
+package org.marakas73.service.filescanner.engine;
+
+import org.marakas73.config.FileScannerProperties;
+import org.marakas73.model.ScanEngineType;
+import org.marakas73.model.ScanEntry;
+import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scan engine which splits scan into stages connected by bounded queues: directory walking,
+ * metadata filtering and content matching. Slow content reads don't stall directory walking,
+ * and a full queue makes the previous stage wait (backpressure). Content stage receives only
+ * entries which passed all cheap predicates. Each stage has its own parallelism.
+ */
+@Component
+public class PipelineFileScanEngine implements FileScanEngine {
+    private static final Logger log = LoggerFactory.getLogger(PipelineFileScanEngine.class);
+
+    private static final long POLL_TIMEOUT_MILLIS = 50;
+    // Marks the end of the stage input
+    private static final ScanEntry END_OF_STAGE = new ScanEntry(Path.of(""), 0, 0, ScanEntry.Type.OTHER, null);
+
+    private final FileScanFilterMatcher fileScanFilterMatcher;
+    private final FileScannerProperties properties;
+
+    public PipelineFileScanEngine(FileScanFilterMatcher fileScanFilterMatcher, FileScannerProperties properties) {
+        this.fileScanFilterMatcher = fileScanFilterMatcher;
+        this.properties = properties;
+    }
+
+    @Override
+    public ScanEngineType getType() {
+        return ScanEngineType.PIPELINE;
+    }
+
+    @Override
+    public CompletableFuture<List<String>> start(FileScanJob job) {
+        // Stage workers mostly wait for queues or filesystem, so virtual threads are used
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        CompletableFuture<List<String>> future = new CompletableFuture<>();
+        PipelineScan scan = new PipelineScan(job, future);
+
+        log.info("Scan task with token {} started", job.token());
+        for (int i = 0; i < scan.walkerThreads; i++) {
+            executor.submit(() -> scan.runStage(scan::walk, scan::onWalkerCompleted));
+        }
+        for (int i = 0; i < scan.metadataThreads; i++) {
+            executor.submit(() -> scan.runStage(scan::filterMetadata, scan::onMetadataFilterCompleted));
+        }
+        for (int i = 0; i < scan.contentThreads; i++) {
+            executor.submit(() -> scan.runStage(scan::matchContent, scan::onContentMatcherCompleted));
+        }
+
+        future.whenComplete((_, _) -> {
+            if (future.isCancelled()) {
+                // Interrupt all stage workers
+                executor.shutdownNow();
+            } else {
+                executor.shutdown();
+            }
+        });
+        return future;
+    }
+
+    private record DirectoryTask(Path path, int depth) {
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws InterruptedException;
+    }
+
+    private final class PipelineScan {
+        private final FileScanJob job;
+        private final CompletableFuture<List<String>> future;
+        private final int depthLimit;
+
+        private final int walkerThreads = properties.getPipelineWalkerThreads();
+        private final int metadataThreads = properties.getPipelineMetadataThreads();
+        private final int contentThreads = properties.getPipelineContentThreads();
+
+        private final BlockingQueue<DirectoryTask> directories = new LinkedBlockingQueue<>();
+        private final BlockingQueue<ScanEntry> metadataQueue = new ArrayBlockingQueue<>(properties.getPipelineQueueCapacity());
+        private final BlockingQueue<ScanEntry> contentQueue = new ArrayBlockingQueue<>(properties.getPipelineQueueCapacity());
+
+        // Directories which are queued or being listed at the moment
+        private final AtomicInteger pendingDirectories = new AtomicInteger(1);
+        private final AtomicInteger runningWalkers = new AtomicInteger(walkerThreads);
+        private final AtomicInteger runningMetadataFilters = new AtomicInteger(metadataThreads);
+        private final AtomicInteger runningContentMatchers = new AtomicInteger(contentThreads);
+
+        private PipelineScan(FileScanJob job, CompletableFuture<List<String>> future) {
+            this.job = job;
+            this.future = future;
+            // depthLimit == -1 means that no depth limit provided
+            this.depthLimit = job.depthLimit() != null ? job.depthLimit() : -1;
+            directories.add(new DirectoryTask(job.rootPath(), 0));
+        }
+
+        private void runStage(Stage stage, Runnable onCompleted) {
+            try {
+                stage.run();
+            } catch (InterruptedException e) {
+                job.interrupted().set(true);
+            } catch (Throwable t) {
+                log.error("Error while pipeline file scan with token {}:", job.token(), t);
+                job.interrupted().set(true);
+                future.completeExceptionally(t);
+            } finally {
+                onCompleted.run();
+            }
+        }
+
+        private void walk() throws InterruptedException {
+            while (!isInterrupted()) {
+                DirectoryTask directory = directories.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (directory == null) {
+                    if (pendingDirectories.get() == 0) {
+                        // All directories are listed
+                        return;
+                    }
+                    continue;
+                }
+
+                try {
+                    listDirectory(directory);
+                } finally {
+                    pendingDirectories.decrementAndGet();
+                }
+            }
+        }
+
+        private void listDirectory(DirectoryTask directory) throws InterruptedException {
+            try (var stream = Files.newDirectoryStream(directory.path())) {
+                for (Path member : stream) {
+                    if (isInterrupted()) {
+                        return;
+                    }
+
+                    ScanEntry entry;
+                    try {
+                        entry = ScanEntry.of(
+                                member.toAbsolutePath(),
+                                Files.readAttributes(member, BasicFileAttributes.class)
+                        );
+                    } catch (IOException ioe) {
+                        // Entry disappeared or is a broken link, skip it
+                        continue;
+                    }
+
+                    if (entry.isRegularFile()) {
+                        // Waits while metadata stage is full
+                        offer(metadataQueue, entry);
+                    } else if (entry.isDirectory()) {
+                        if (depthLimit != -1 && directory.depth() > depthLimit) {
+                            continue;
+                        }
+                        pendingDirectories.incrementAndGet();
+                        directories.add(new DirectoryTask(entry.path(), directory.depth() + 1));
+                    }
+                }
+            } catch (IOException ioe) {
+                log.error("IO Error while file scan {}:", directory.path(), ioe);
+                // Ignore any IO errors while scanning
+            }
+        }
+
+        private void filterMetadata() throws InterruptedException {
+            while (true) {
+                ScanEntry entry = take(metadataQueue);
+                if (entry == END_OF_STAGE || entry == null) {
+                    return;
+                }
+
+                if (!job.filter().matchesMetadata(entry)) {
+                    continue;
+                }
+                if (job.filter().hasContentPredicate()) {
+                    // Waits while content stage is full
+                    offer(contentQueue, entry);
+                } else {
+                    addResult(entry, List.of());
+                }
+            }
+        }
+
+        private void matchContent() throws InterruptedException {
+            while (true) {
+                ScanEntry entry = take(contentQueue);
+                if (entry == END_OF_STAGE || entry == null) {
+                    return;
+                }
+
+                List<String> foundTerms = fileScanFilterMatcher.matchByTextContent(entry, job.filter());
+                if (foundTerms != null) {
+                    addResult(entry, foundTerms);
+                }
+            }
+        }
+
+        private void onWalkerCompleted() {
+            if (runningWalkers.decrementAndGet() == 0) {
+                endStage(metadataQueue, metadataThreads);
+            }
+        }
+
+        private void onMetadataFilterCompleted() {
+            if (runningMetadataFilters.decrementAndGet() == 0) {
+                endStage(contentQueue, contentThreads);
+            }
+        }
+
+        private void onContentMatcherCompleted() {
+            if (runningContentMatchers.decrementAndGet() == 0) {
+                // No-op if future is already completed by error or cancellation
+                future.complete(job.partial().snapshot());
+            }
+        }
+
+        private void endStage(BlockingQueue<ScanEntry> queue, int workers) {
+            try {
+                for (int i = 0; i < workers; i++) {
+                    offer(queue, END_OF_STAGE);
+                }
+            } catch (InterruptedException e) {
+                // Next stage workers check interrupted flag by themselves
+                job.interrupted().set(true);
+            }
+        }
+
+        private void addResult(ScanEntry entry, List<String> foundTerms) {
+            String pathStr = entry.path().toString();
+            if (job.filter().reportsMatchedTerms()) {
+                job.matchedTerms().put(pathStr, foundTerms);
+            }
+            job.partial().add(pathStr);
+        }
+
+        private <T> void offer(BlockingQueue<T> queue, T item) throws InterruptedException {
+            while (!queue.offer(item, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (isInterrupted()) {
+                    // Next stage workers stop by interrupted flag
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return next item or {@code null} if scan is interrupted.
+         */
+        private ScanEntry take(BlockingQueue<ScanEntry> queue) throws InterruptedException {
+            while (!isInterrupted()) {
+                ScanEntry entry = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private boolean isInterrupted() {
+            return job.interrupted().get() || Thread.currentThread().isInterrupted();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.marakas73.service.filescanner.engine;
+
+import org.marakas73.config.FileScannerProperties;
+import org.marakas73.model.ScanEngineType;
+import org.marakas73.model.ScanEntry;
+import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Scan engine for high-latency filesystems: every directory is scanned by its own virtual thread,
+ * so many listing and stat calls can be in flight at once. Count of in-flight filesystem operations
+ * is capped by a semaphore. Each directory waits for its subdirectories and cancels them when interrupted,
+ * so the scan is cancelled as a whole.
+ */
+@Component
+public class VirtualThreadFileScanEngine implements FileScanEngine {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadFileScanEngine.class);
+
+    private final FileScanFilterMatcher fileScanFilterMatcher;
+    private final FileScannerProperties properties;
+
+    public VirtualThreadFileScanEngine(FileScanFilterMatcher fileScanFilterMatcher, FileScannerProperties properties) {
+        this.fileScanFilterMatcher = fileScanFilterMatcher;
+        this.properties = properties;
+    }
+
+    @Override
+    public ScanEngineType getType() {
+        return ScanEngineType.VIRTUAL_THREADS;
+    }
+
+    @Override
+    public CompletableFuture<List<String>> start(FileScanJob job) {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        Semaphore ioPermits = new Semaphore(properties.getVirtualThreadsMaxInFlightIo());
+        CompletableFuture<List<String>> future = new CompletableFuture<>();
+
+        executor.submit(() -> {
+            log.info("Scan task with token {} started", job.token());
+            try {
+                scanDirectory(job, executor, ioPermits, job.rootPath(), 0);
+                future.complete(job.partial().snapshot());
+            } catch (InterruptedException e) {
+                future.cancel(true);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+
+        future.whenComplete((_, _) -> {
+            if (future.isCancelled()) {
+                // Interrupt all running directory threads
+                executor.shutdownNow();
+            } else {
+                executor.shutdown();
+            }
+        });
+        return future;
+    }
+
+    private void scanDirectory(
+            FileScanJob job,
+            ExecutorService executor,
+            Semaphore ioPermits,
+            Path targetPath,
+            int currentDepth
+    ) throws InterruptedException, ExecutionException {
+        if (isInterrupted(job)) {
+            return;
+        }
+
+        // depthLimit == -1 means that no depth limit provided
+        int depthLimit = job.depthLimit() != null ? job.depthLimit() : -1;
+
+        List<Path> members = listDirectory(ioPermits, targetPath);
+        List<Future<?>> subTasks = new ArrayList<>();
+        try {
+            for (Path member : members) {
+                if (isInterrupted(job)) {
+                    break;
+                }
+
+                ScanEntry entry = readEntry(ioPermits, member);
+                if (entry == null) {
+                    // Entry disappeared or is a broken link, skip it
+                    continue;
+                }
+
+                if (entry.isRegularFile()) {
+                    List<String> foundTerms = matchEntry(job, ioPermits, entry);
+                    if (foundTerms != null) {
+                        String pathStr = entry.path().toString();
+                        if (job.filter().reportsMatchedTerms()) {
+                            job.matchedTerms().put(pathStr, foundTerms);
+                        }
+                        job.partial().add(pathStr);
+                    }
+                } else if (entry.isDirectory()) {
+                    if (depthLimit != -1 && currentDepth > depthLimit) {
+                        continue;
+                    }
+
+                    subTasks.add(executor.submit(() -> {
+                        scanDirectory(job, executor, ioPermits, entry.path(), currentDepth + 1);
+                        return null;
+                    }));
+                }
+            }
+
+            // Directory scope completes only when all subdirectories are completed
+            for (Future<?> subTask : subTasks) {
+                subTask.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            subTasks.forEach(subTask -> subTask.cancel(true));
+            throw e;
+        }
+    }
+
+    private List<Path> listDirectory(Semaphore ioPermits, Path targetPath) throws InterruptedException {
+        ioPermits.acquire();
+        try (var stream = Files.newDirectoryStream(targetPath)) {
+            List<Path> members = new ArrayList<>();
+            stream.forEach(members::add);
+            return members;
+        } catch (IOException ioe) {
+            log.error("IO Error while file scan {}:", targetPath, ioe);
+            // Ignore any IO errors while scanning
+            return List.of();
+        } finally {
+            ioPermits.release();
+        }
+    }
+
+    private ScanEntry readEntry(Semaphore ioPermits, Path member) throws InterruptedException {
+        ioPermits.acquire();
+        try {
+            return ScanEntry.of(member.toAbsolutePath(), Files.readAttributes(member, BasicFileAttributes.class));
+        } catch (IOException ioe) {
+            return null;
+        } finally {
+            ioPermits.release();
+        }
+    }
+
+    private List<String> matchEntry(FileScanJob job, Semaphore ioPermits, ScanEntry entry) throws InterruptedException {
+        if (!job.filter().matchesMetadata(entry)) {
+            return null;
+        }
+        if (!job.filter().hasContentPredicate()) {
+            return List.of();
+        }
+
+        // Content predicate reads the file, so it's an in-flight filesystem operation too
+        ioPermits.acquire();
+        try {
+            return fileScanFilterMatcher.matchByTextContent(entry, job.filter());
+        } finally {
+            ioPermits.release();
+        }
+    }
+
+    private static boolean isInterrupted(FileScanJob job) {
+        return job.interrupted().get() || Thread.currentThread().isInterrupted();
+    }
+}
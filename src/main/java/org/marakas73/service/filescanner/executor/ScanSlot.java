@@ -0,0 +1,55 @@
+package org.marakas73.service.filescanner.executor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parallelism budget of a single scan in {@link SharedScanExecutor}.
+ * Scan tasks are forked only while budget allows it, otherwise they are computed inline by the current worker.
+ */
+public final class ScanSlot implements AutoCloseable {
+    private final SharedScanExecutor executor;
+    private final int weight;
+    // Root task of the scan is always running
+    private final AtomicInteger inFlight = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    ScanSlot(SharedScanExecutor executor, int weight) {
+        this.executor = executor;
+        this.weight = weight;
+    }
+
+    /**
+     * Tries to take a permit for one more parallel task, permit must be released when task is completed.
+     *
+     * @return {@code true} if task can be forked.
+     */
+    public boolean tryAcquire() {
+        int limit = Math.min(weight, executor.fairShare(weight));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public void close() {
+        // Can be called several times, e.g. on kill and on completion
+        if (closed.compareAndSet(false, true)) {
+            executor.unregister(weight);
+        }
+    }
+}
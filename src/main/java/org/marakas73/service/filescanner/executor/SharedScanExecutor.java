@@ -0,0 +1,73 @@
+package org.marakas73.service.filescanner.executor;
+
+import jakarta.annotation.PreDestroy;
+import org.marakas73.config.FileScannerProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived work-stealing pool shared by all scans.
+ * Each scan gets a {@link ScanSlot} which limits how many of its tasks may run in parallel,
+ * the limit is a share of pool workers weighted by scan requested parallelism.
+ */
+@Component
+public class SharedScanExecutor {
+    private static final Logger log = LoggerFactory.getLogger(SharedScanExecutor.class);
+
+    private static final int SHUTDOWN_TIME_LIMIT_SECS = 5; // 5 secs
+
+    private final ForkJoinPool pool;
+    private final AtomicInteger totalWeight = new AtomicInteger();
+
+    public SharedScanExecutor(FileScannerProperties properties) {
+        this.pool = new ForkJoinPool(properties.getPoolSize());
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Registers new scan in executor.
+     *
+     * @param parallelism max count of scan tasks which may run in parallel.
+     * @return slot which must be closed when scan is completed.
+     */
+    public ScanSlot register(int parallelism) {
+        int weight = Math.min(parallelism, pool.getParallelism());
+        totalWeight.addAndGet(weight);
+        return new ScanSlot(this, weight);
+    }
+
+    void unregister(int weight) {
+        totalWeight.addAndGet(-weight);
+    }
+
+    /**
+     * @return count of workers which scan with provided weight may use at the moment.
+     */
+    int fairShare(int weight) {
+        int total = Math.max(weight, totalWeight.get());
+        return Math.max(1, (int) ((long) pool.getParallelism() * weight / total));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(SHUTDOWN_TIME_LIMIT_SECS, TimeUnit.SECONDS)) {
+                // Force stop if it takes more time than limit
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        }
+        log.info("Shared scan executor is shut down");
+    }
+}
@@ -0,0 +1,139 @@
+package org.marakas73.service.filescanner.index;
+
+import org.marakas73.model.ScanEntry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Built metadata index of a single root, stored in its own directory as sorted segments
+ * and a descriptor which is written last, so index without descriptor is incomplete.
+ * Replaced index is retired and its directory is deleted only when its last reader is done.
+ */
+public final class MetadataIndex {
+    static final String DESCRIPTOR_FILE_NAME = "index.properties";
+
+    private final Path rootPath;
+    private final Path directory;
+    private final int segmentCount;
+    private final long entryCount;
+    private final long builtAtMillis;
+
+    private int readerCount;
+    private boolean retired;
+
+    private MetadataIndex(Path rootPath, Path directory, int segmentCount, long entryCount, long builtAtMillis) {
+        this.rootPath = rootPath;
+        this.directory = directory;
+        this.segmentCount = segmentCount;
+        this.entryCount = entryCount;
+        this.builtAtMillis = builtAtMillis;
+    }
+
+    static MetadataIndex write(
+            Path rootPath,
+            Path directory,
+            int segmentCount,
+            long entryCount,
+            long builtAtMillis
+    ) throws IOException {
+        Properties descriptor = new Properties();
+        descriptor.setProperty("root", rootPath.toString());
+        descriptor.setProperty("segments", Integer.toString(segmentCount));
+        descriptor.setProperty("entries", Long.toString(entryCount));
+        descriptor.setProperty("builtAt", Long.toString(builtAtMillis));
+        try (OutputStream out = Files.newOutputStream(directory.resolve(DESCRIPTOR_FILE_NAME))) {
+            descriptor.store(out, null);
+        }
+        return new MetadataIndex(rootPath, directory, segmentCount, entryCount, builtAtMillis);
+    }
+
+    static MetadataIndex load(Path directory) throws IOException {
+        Properties descriptor = new Properties();
+        try (InputStream in = Files.newInputStream(directory.resolve(DESCRIPTOR_FILE_NAME))) {
+            descriptor.load(in);
+        }
+        try {
+            return new MetadataIndex(
+                    Paths.get(descriptor.getProperty("root")),
+                    directory,
+                    Integer.parseInt(descriptor.getProperty("segments")),
+                    Long.parseLong(descriptor.getProperty("entries")),
+                    Long.parseLong(descriptor.getProperty("builtAt"))
+            );
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted metadata index descriptor in " + directory, e);
+        }
+    }
+
+    /**
+     * @return {@code false} if index is retired, so it can't be read anymore.
+     */
+    synchronized boolean acquire() {
+        if (retired) {
+            return false;
+        }
+        readerCount++;
+        return true;
+    }
+
+    /**
+     * @return {@code true} if index is retired and this was its last reader, so its directory must be deleted.
+     */
+    synchronized boolean release() {
+        readerCount--;
+        return retired && readerCount == 0;
+    }
+
+    /**
+     * @return {@code true} if index has no readers, so its directory must be deleted now,
+     *         otherwise it's deleted by the last reader.
+     */
+    synchronized boolean retire() {
+        if (retired) {
+            return false;
+        }
+        retired = true;
+        return readerCount == 0;
+    }
+
+    static Path segmentFile(Path directory, int segment) {
+        return directory.resolve(String.format("segment-%06d.idx", segment));
+    }
+
+    /**
+     * Reads all entries of the index, entries are sorted by path within each segment only.
+     */
+    void forEachEntry(AtomicBoolean interrupted, Consumer<ScanEntry> consumer) throws IOException {
+        for (int segment = 0; segment < segmentCount && !interrupted.get(); segment++) {
+            MetadataIndexSegment.read(segmentFile(directory, segment), interrupted, consumer);
+        }
+    }
+
+    public Path getRootPath() {
+        return rootPath;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    public long getBuiltAtMillis() {
+        return builtAtMillis;
+    }
+}
@@ -0,0 +1,74 @@
+package org.marakas73.service.filescanner.index;
+
+import org.marakas73.model.ScanEntry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Entry sink of index build scan, writes a sorted segment each time enough entries are collected.
+ * Entries are accepted concurrently by scan tasks, full segments are written outside the lock.
+ */
+final class MetadataIndexBuilder implements Consumer<ScanEntry> {
+    private final Path rootPath;
+    private final Path directory;
+    private final int segmentSize;
+
+    private final AtomicInteger segmentCount = new AtomicInteger();
+    private final AtomicLong entryCount = new AtomicLong();
+    private List<ScanEntry> buffer;
+
+    MetadataIndexBuilder(Path rootPath, Path directory, int segmentSize) {
+        this.rootPath = rootPath;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.buffer = new ArrayList<>(segmentSize);
+    }
+
+    @Override
+    public void accept(ScanEntry entry) {
+        List<ScanEntry> full = null;
+        synchronized (this) {
+            buffer.add(entry);
+            if (buffer.size() >= segmentSize) {
+                full = buffer;
+                buffer = new ArrayList<>(segmentSize);
+            }
+        }
+
+        if (full != null) {
+            writeSegment(full);
+        }
+    }
+
+    /**
+     * Writes the last segment and the descriptor, must be called after the scan is completed.
+     */
+    MetadataIndex finish(long builtAtMillis) throws IOException {
+        List<ScanEntry> rest;
+        synchronized (this) {
+            rest = buffer;
+            buffer = new ArrayList<>();
+        }
+        if (!rest.isEmpty()) {
+            writeSegment(rest);
+        }
+        return MetadataIndex.write(rootPath, directory, segmentCount.get(), entryCount.get(), builtAtMillis);
+    }
+
+    private void writeSegment(List<ScanEntry> entries) {
+        try {
+            MetadataIndexSegment.write(MetadataIndex.segmentFile(directory, segmentCount.getAndIncrement()), entries);
+        } catch (IOException e) {
+            // Fails the build scan
+            throw new UncheckedIOException(e);
+        }
+        entryCount.addAndGet(entries.size());
+    }
+}
@@ -0,0 +1,168 @@
+package org.marakas73.service.filescanner.index;
+
+import org.marakas73.model.ScanEntry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * On-disk segment of metadata index, entries are sorted by path and paths are front-coded.
+ * <p>
+ * Format: magic, entry count, then for each entry: shared prefix length with previous path,
+ * suffix length and UTF-8 suffix bytes, size, last modified millis, type ordinal and file key
+ * (length and UTF-8 bytes, 0 length if there is no file key). All numbers are varints.
+ */
+final class MetadataIndexSegment {
+    private static final byte[] MAGIC = {0, 'M', 'I', 1};
+    private static final ScanEntry.Type[] TYPES = ScanEntry.Type.values();
+
+    private MetadataIndexSegment() {
+    }
+
+    static void write(Path file, List<ScanEntry> entries) throws IOException {
+        ScanEntry[] sorted = entries.toArray(ScanEntry[]::new);
+        Arrays.sort(sorted, Comparator.comparing(entry -> entry.path().toString()));
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            out.write(MAGIC);
+            writeVarLong(out, sorted.length);
+
+            byte[] previous = new byte[0];
+            for (ScanEntry entry : sorted) {
+                byte[] path = entry.path().toString().getBytes(StandardCharsets.UTF_8);
+                int shared = sharedPrefixLength(previous, path);
+                writeVarLong(out, shared);
+                writeVarLong(out, path.length - shared);
+                out.write(path, shared, path.length - shared);
+                writeVarLong(out, entry.size());
+                writeVarLong(out, zigZag(entry.lastModifiedMillis()));
+                out.write(entry.type().ordinal());
+
+                if (entry.fileKey() != null) {
+                    byte[] fileKey = entry.fileKey().toString().getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(out, fileKey.length);
+                    out.write(fileKey);
+                } else {
+                    writeVarLong(out, 0);
+                }
+                previous = path;
+            }
+        }
+    }
+
+    /**
+     * Reads entries in path order, file keys are read as strings.
+     * Reading is stopped when interrupted flag is set.
+     */
+    static void read(Path file, AtomicBoolean interrupted, Consumer<ScanEntry> consumer) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            if (!Arrays.equals(in.readNBytes(MAGIC.length), MAGIC)) {
+                throw new IOException("Not a metadata index segment: " + file);
+            }
+
+            long count = readVarLong(in);
+            byte[] path = new byte[256];
+            int pathLength = 0;
+            for (long i = 0; i < count; i++) {
+                if (interrupted.get() || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                int shared = (int) readVarLong(in);
+                int suffixLength = (int) readVarLong(in);
+                if (shared > pathLength) {
+                    throw new IOException("Corrupted metadata index segment: " + file);
+                }
+                pathLength = shared + suffixLength;
+                if (pathLength > path.length) {
+                    path = Arrays.copyOf(path, Math.max(pathLength, path.length * 2));
+                }
+                readFully(in, path, shared, suffixLength);
+
+                long size = readVarLong(in);
+                long lastModifiedMillis = unZigZag(readVarLong(in));
+                int type = in.read();
+                if (type < 0 || type >= TYPES.length) {
+                    throw new IOException("Corrupted metadata index segment: " + file);
+                }
+                int fileKeyLength = (int) readVarLong(in);
+                String fileKey = null;
+                if (fileKeyLength > 0) {
+                    fileKey = new String(in.readNBytes(fileKeyLength), StandardCharsets.UTF_8);
+                }
+
+                Path entryPath;
+                try {
+                    entryPath = Paths.get(new String(path, 0, pathLength, StandardCharsets.UTF_8));
+                } catch (InvalidPathException e) {
+                    // Name can't be represented in the platform encoding, so it can't be opened anyway
+                    continue;
+                }
+                consumer.accept(new ScanEntry(
+                        entryPath,
+                        size,
+                        lastModifiedMillis,
+                        TYPES[type],
+                        fileKey
+                ));
+            }
+        }
+    }
+
+    private static int sharedPrefixLength(byte[] a, byte[] b) {
+        int max = Math.min(a.length, b.length);
+        int mismatch = Arrays.mismatch(a, 0, max, b, 0, max);
+        return mismatch < 0 ? max : mismatch;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int current;
+        do {
+            current = in.read();
+            if (current < 0) {
+                throw new EOFException("Unexpected end of metadata index segment");
+            }
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        if (in.readNBytes(buffer, offset, length) != length) {
+            throw new EOFException("Unexpected end of metadata index segment");
+        }
+    }
+}
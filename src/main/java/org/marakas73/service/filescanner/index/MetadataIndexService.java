@@ -0,0 +1,440 @@
+package org.marakas73.service.filescanner.index;
+
+import jakarta.annotation.PostConstruct;
+import org.marakas73.config.FileScannerProperties;
+import org.marakas73.model.ScanEntry;
+import org.marakas73.service.filescanner.RecursiveFileScanTask;
+import org.marakas73.service.filescanner.engine.FileScanEngine;
+import org.marakas73.service.filescanner.engine.FileScanJob;
+import org.marakas73.service.filescanner.executor.ScanSlot;
+import org.marakas73.service.filescanner.executor.SharedScanExecutor;
+import org.marakas73.service.filescanner.result.ChunkedResultBuffer;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
+import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Persistent metadata indexes of registered roots. Scans under a registered root are answered
+ * from its index by name predicate instead of listing directories, size and date predicates are checked
+ * by current attributes of the files, as files can be changed in place since index was built.
+ * <p>
+ * Directories changed since index was built may have entries which are not indexed, so they are listed
+ * again by the scan. Index is used only until max age is reached and is rebuilt periodically,
+ * so the count of such directories stays small.
+ */
+@Service
+public class MetadataIndexService {
+    private static final Logger log = LoggerFactory.getLogger(MetadataIndexService.class);
+
+    // Directory modified within this window before index build start may be changed again
+    // in the same timestamp tick after it was listed, so it's listed again
+    private static final long RACY_WINDOW_MILLIS = 2000;
+
+    private final FileScanFilterMatcher fileScanFilterMatcher;
+    private final SharedScanExecutor executor;
+    private final FileScannerProperties properties;
+    private final Path indexDirectory;
+
+    private final ConcurrentMap<Path, MetadataIndex> indexes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Path, CompletableFuture<MetadataIndex>> builds = new ConcurrentHashMap<>();
+    // Registered roots, including ones whose first build is not completed yet
+    private final ConcurrentMap<Path, AtomicBoolean> registrations = new ConcurrentHashMap<>();
+
+    public MetadataIndexService(
+            FileScanFilterMatcher fileScanFilterMatcher,
+            SharedScanExecutor executor,
+            FileScannerProperties properties
+    ) {
+        this.fileScanFilterMatcher = fileScanFilterMatcher;
+        this.executor = executor;
+        this.properties = properties;
+        this.indexDirectory = Paths.get(properties.getIndexDirectory()).toAbsolutePath();
+    }
+
+    @PostConstruct
+    private void loadIndexes() throws IOException {
+        Files.createDirectories(indexDirectory);
+
+        // Only the latest complete index of each root is kept, incomplete builds are removed
+        List<Path> obsolete = new ArrayList<>();
+        try (Stream<Path> directories = Files.list(indexDirectory)) {
+            for (Path directory : directories.toList()) {
+                if (!Files.exists(directory.resolve(MetadataIndex.DESCRIPTOR_FILE_NAME))) {
+                    obsolete.add(directory);
+                    continue;
+                }
+
+                try {
+                    MetadataIndex index = MetadataIndex.load(directory);
+                    MetadataIndex previous = indexes.get(index.getRootPath());
+                    if (previous == null || previous.getBuiltAtMillis() < index.getBuiltAtMillis()) {
+                        indexes.put(index.getRootPath(), index);
+                        registrations.put(index.getRootPath(), new AtomicBoolean(false));
+                        if (previous != null) {
+                            obsolete.add(previous.getDirectory());
+                        }
+                    } else {
+                        obsolete.add(directory);
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed to load metadata index from {}:", directory, e);
+                    obsolete.add(directory);
+                }
+            }
+        }
+        obsolete.forEach(MetadataIndexService::deleteDirectory);
+        log.info("Loaded {} metadata indexes from {}", indexes.size(), indexDirectory);
+    }
+
+    /**
+     * Registers root and starts building its index, running build of the same root is reused.
+     */
+    public CompletableFuture<MetadataIndex> register(Path rootPath) {
+        if (!Files.isDirectory(rootPath)) {
+            throw new IllegalArgumentException("Not a directory: " + rootPath);
+        }
+        registrations.putIfAbsent(rootPath, new AtomicBoolean(false));
+        return build(rootPath);
+    }
+
+    /**
+     * @return {@code true} if root was registered, its index is deleted and running build is stopped.
+     */
+    public boolean unregister(Path rootPath) {
+        AtomicBoolean interrupted = registrations.remove(rootPath);
+        if (interrupted == null) {
+            return false;
+        }
+
+        interrupted.set(true);
+        MetadataIndex index = indexes.remove(rootPath);
+        if (index != null) {
+            retire(index);
+        }
+        return true;
+    }
+
+    public Collection<MetadataIndex> getIndexes() {
+        return List.copyOf(indexes.values());
+    }
+
+    /**
+     * @return the deepest fresh index whose root contains the scan root.
+     */
+    public Optional<MetadataIndex> find(Path rootPath) {
+        long minBuiltAtMillis = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(properties.getIndexMaxAge());
+        return indexes.values().stream()
+                .filter(index -> rootPath.startsWith(index.getRootPath()))
+                .filter(index -> index.getBuiltAtMillis() >= minBuiltAtMillis)
+                .max(Comparator.comparingInt(index -> index.getRootPath().getNameCount()));
+    }
+
+    /**
+     * Runs scan by reading the index instead of walking the tree.
+     *
+     * @param fallback engine which runs the scan if index is retired or can't be read.
+     */
+    public CompletableFuture<List<String>> start(FileScanJob job, MetadataIndex index, FileScanEngine fallback) {
+        if (!index.acquire()) {
+            // Index is replaced since it was found
+            return fallback.start(job);
+        }
+
+        CompletableFuture<List<String>> indexed = CompletableFuture.supplyAsync(() -> {
+            log.info("Scan task with token {} started from metadata index of {}", job.token(), index.getRootPath());
+            // Slot is used only by walks of directories created since index was built
+            ScanSlot slot = executor.register(job.parallelism());
+            try {
+                return scanIndex(job, index, slot) ? job.partial().snapshot() : null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                slot.close();
+                if (index.release()) {
+                    deleteDirectory(index.getDirectory());
+                }
+            }
+        }, executor.getPool());
+
+        AtomicReference<CompletableFuture<List<String>>> walk = new AtomicReference<>();
+        CompletableFuture<List<String>> future = indexed.thenCompose(result -> {
+            if (result != null) {
+                return CompletableFuture.completedFuture(result);
+            }
+            walk.set(fallback.start(job));
+            return walk.get();
+        });
+        // Cancellation of the scan must stop the fallback walk too
+        future.whenComplete((_, throwable) -> {
+            if (throwable instanceof CancellationException && walk.get() != null) {
+                walk.get().cancel(true);
+            }
+        });
+        return future;
+    }
+
+    @Scheduled(
+            initialDelayString = "${scanner.index-refresh-interval}",
+            fixedDelayString = "${scanner.index-refresh-interval}",
+            timeUnit = TimeUnit.SECONDS
+    )
+    private void refreshIndexes() {
+        long minBuiltAtMillis = System.currentTimeMillis()
+                - TimeUnit.SECONDS.toMillis(properties.getIndexRefreshInterval());
+        registrations.keySet().forEach(rootPath -> {
+            MetadataIndex index = indexes.get(rootPath);
+            if (index == null || index.getBuiltAtMillis() < minBuiltAtMillis) {
+                build(rootPath);
+            }
+        });
+    }
+
+    private CompletableFuture<MetadataIndex> build(Path rootPath) {
+        CompletableFuture<MetadataIndex> running = builds.get(rootPath);
+        if (running != null) {
+            return running;
+        }
+
+        CompletableFuture<MetadataIndex> started = new CompletableFuture<>();
+        running = builds.putIfAbsent(rootPath, started);
+        if (running != null) {
+            return running;
+        }
+
+        AtomicBoolean interrupted = registrations.getOrDefault(rootPath, new AtomicBoolean(true));
+        long builtAtMillis = System.currentTimeMillis();
+        Path directory = indexDirectory.resolve(
+                UUID.nameUUIDFromBytes(rootPath.toString().getBytes(StandardCharsets.UTF_8)) + "-" + builtAtMillis
+        );
+        ScanSlot slot = executor.register(properties.getThreadsCount());
+
+        CompletableFuture.supplyAsync(() -> {
+            log.info("Metadata index build of {} started", rootPath);
+            try {
+                Files.createDirectories(directory);
+                MetadataIndexBuilder builder = new MetadataIndexBuilder(
+                        rootPath, directory, properties.getIndexSegmentSize()
+                );
+                // Entries are passed to the builder, so filter, result buffer and matched terms are not used
+                new RecursiveFileScanTask(
+                        fileScanFilterMatcher,
+                        rootPath,
+                        CompiledFileScanFilter.matchAll(),
+                        null,
+                        0,
+                        new ChunkedResultBuffer(),
+                        Map.of(),
+                        interrupted,
+                        slot,
+                        builder,
+                        null,
+                        -1
+                ).invoke();
+                if (interrupted.get()) {
+                    throw new IllegalStateException("Metadata index build of " + rootPath + " is stopped");
+                }
+                return builder.finish(builtAtMillis);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor.getPool()).whenComplete((index, throwable) -> {
+            slot.close();
+            if (throwable != null) {
+                log.warn("Metadata index build of {} failed:", rootPath, throwable);
+                deleteDirectory(directory);
+                builds.remove(rootPath, started);
+                started.completeExceptionally(throwable);
+                return;
+            }
+
+            MetadataIndex previous = indexes.put(rootPath, index);
+            if (previous != null) {
+                retire(previous);
+            }
+            if (!registrations.containsKey(rootPath) && indexes.remove(rootPath, index)) {
+                // Unregistered while built
+                retire(index);
+            }
+            log.info("Metadata index build of {} completed, {} entries", rootPath, index.getEntryCount());
+            builds.remove(rootPath, started);
+            started.complete(index);
+        });
+        return started;
+    }
+
+    /**
+     * @return {@code false} if index can't be read, no results are added then.
+     */
+    private boolean scanIndex(FileScanJob job, MetadataIndex index, ScanSlot slot) throws IOException {
+        CompiledFileScanFilter filter = job.filter();
+        Path rootPath = job.rootPath();
+        int maxNameCount = job.depthLimit() != null
+                // The same depth as walked by scan tasks: files of depth limit + 1 directories are visible
+                ? rootPath.getNameCount() + job.depthLimit() + 2
+                : Integer.MAX_VALUE;
+
+        // Indexed directories of the scan, the ones changed since index build are listed again
+        Set<Path> directories = new HashSet<>();
+        directories.add(rootPath);
+        try {
+            index.forEachEntry(job.interrupted(), indexed -> {
+                Path path = indexed.path();
+                if (indexed.isDirectory() && path.startsWith(rootPath) && path.getNameCount() < maxNameCount) {
+                    directories.add(path);
+                }
+            });
+        } catch (IOException e) {
+            // Every segment is read here, so index which is not fully readable is never used for results
+            log.warn("Failed to read metadata index of {}, scan walks the tree:", index.getRootPath(), e);
+            return false;
+        }
+        Set<Path> changedDirectories = new HashSet<>();
+        for (Path directory : directories) {
+            try {
+                long lastModifiedMillis = Files.getLastModifiedTime(directory).toMillis();
+                if (lastModifiedMillis >= index.getBuiltAtMillis() - RACY_WINDOW_MILLIS) {
+                    changedDirectories.add(directory);
+                }
+            } catch (IOException e) {
+                // Directory is deleted since index was built, so are its files
+            }
+        }
+
+        index.forEachEntry(job.interrupted(), indexed -> {
+            Path path = indexed.path();
+            if (!indexed.isRegularFile()
+                    || !path.startsWith(rootPath)
+                    || path.getNameCount() > maxNameCount
+                    || changedDirectories.contains(path.getParent())
+                    || !filter.matchesName(indexed)) {
+                return;
+            }
+
+            // File can be changed in place since index was built, so it's matched by its current metadata
+            ScanEntry entry;
+            try {
+                entry = ScanEntry.of(path, Files.readAttributes(path, BasicFileAttributes.class));
+            } catch (IOException e) {
+                // File is deleted since index was built
+                return;
+            }
+            if (!entry.isRegularFile() || !filter.matchesMetadata(entry)) {
+                return;
+            }
+
+            List<String> foundTerms = fileScanFilterMatcher.matchByTextContent(entry, filter);
+            if (foundTerms != null) {
+                addMatched(job, path.toString(), foundTerms);
+            }
+        });
+
+        for (Path directory : changedDirectories) {
+            if (job.interrupted().get()) {
+                break;
+            }
+            listChangedDirectory(job, directory, directories, slot);
+        }
+        return true;
+    }
+
+    /**
+     * Matches all files of the directory, subdirectories which are not indexed are walked entirely.
+     */
+    private void listChangedDirectory(FileScanJob job, Path directory, Set<Path> indexedDirectories, ScanSlot slot) {
+        CompiledFileScanFilter filter = job.filter();
+        int depth = directory.getNameCount() - job.rootPath().getNameCount();
+        try (var stream = Files.newDirectoryStream(directory)) {
+            for (Path member : stream) {
+                if (job.interrupted().get()) {
+                    return;
+                }
+
+                ScanEntry entry;
+                try {
+                    entry = ScanEntry.of(
+                            member.toAbsolutePath(),
+                            Files.readAttributes(member, BasicFileAttributes.class)
+                    );
+                } catch (IOException ioe) {
+                    // Entry disappeared or is a broken link, skip it
+                    continue;
+                }
+
+                if (entry.isRegularFile()) {
+                    List<String> foundTerms = fileScanFilterMatcher.match(entry, filter);
+                    if (foundTerms != null) {
+                        addMatched(job, entry.path().toString(), foundTerms);
+                    }
+                } else if (entry.isDirectory()
+                        && !indexedDirectories.contains(entry.path())
+                        && (job.depthLimit() == null || depth <= job.depthLimit())) {
+                    new RecursiveFileScanTask(
+                            fileScanFilterMatcher,
+                            entry.path(),
+                            filter,
+                            job.depthLimit(),
+                            depth + 1,
+                            job.partial(),
+                            job.matchedTerms(),
+                            job.interrupted(),
+                            slot
+                    ).invoke();
+                }
+            }
+        } catch (IOException e) {
+            log.error("IO Error while file scan {}:", directory, e);
+        }
+    }
+
+    private static void addMatched(FileScanJob job, String pathStr, List<String> foundTerms) {
+        if (job.filter().reportsMatchedTerms()) {
+            job.matchedTerms().put(pathStr, foundTerms);
+        }
+        job.partial().add(pathStr);
+    }
+
+    private static void retire(MetadataIndex index) {
+        if (index.retire()) {
+            deleteDirectory(index.getDirectory());
+        }
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            log.warn("Failed to delete metadata index directory {}:", directory, e);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package org.marakas73.service.filescanner.live;
+
+import jakarta.annotation.Nullable;
+import org.marakas73.model.ScanEntry;
+import org.marakas73.service.filescanner.RecursiveFileScanTask;
+import org.marakas73.service.filescanner.executor.ScanSlot;
+import org.marakas73.service.filescanner.executor.SharedScanExecutor;
+import org.marakas73.service.filescanner.result.ChunkedResultBuffer;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
+import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Result set of a single scan kept up to date by watch events of all directories walked by the scan.
+ * Overflowed directories are rescanned, subtrees which can't be watched are rescanned periodically.
+ */
+public final class LiveRegistration implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(LiveRegistration.class);
+
+    private static final int MAX_KEYS_PER_BATCH = 1024;
+
+    private final String key;
+    private final Path rootPath;
+    private final int depthLimit;
+    private final CompiledFileScanFilter filter;
+    private final int parallelism;
+    private final FileScanFilterMatcher fileScanFilterMatcher;
+    private final SharedScanExecutor executor;
+    private final WatchService watchService;
+
+    private final ConcurrentMap<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    // Roots of subtrees which can't be watched, e.g. when watch limit is hit
+    private final Set<Path> unwatchedDirectories = ConcurrentHashMap.newKeySet();
+    // Sorted by path, so subtree entries are a range of keys
+    private final ConcurrentSkipListMap<String, List<String>> matches = new ConcurrentSkipListMap<>();
+    // Stops watcher thread and running rescans
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    // Set while periodic rescan of unwatched subtrees is running
+    private final AtomicBoolean rescanningUnwatched = new AtomicBoolean(false);
+    private volatile boolean ready;
+
+    LiveRegistration(
+            String key,
+            Path rootPath,
+            @Nullable Integer depthLimit,
+            CompiledFileScanFilter filter,
+            int parallelism,
+            FileScanFilterMatcher fileScanFilterMatcher,
+            SharedScanExecutor executor
+    ) throws IOException {
+        this.key = key;
+        this.rootPath = rootPath;
+        this.depthLimit = depthLimit != null ? depthLimit : -1; // -1 is default value for unlimited depth
+        this.filter = filter;
+        this.parallelism = parallelism;
+        this.fileScanFilterMatcher = fileScanFilterMatcher;
+        this.executor = executor;
+        this.watchService = rootPath.getFileSystem().newWatchService();
+    }
+
+    void start() {
+        Thread.ofPlatform().daemon().name("live-scan-" + key.substring(0, 8)).start(() -> {
+            try {
+                // Watches are registered before the scan, so changes made while scanning are not lost
+                registerTree(rootPath);
+                rescan(rootPath);
+                ready = true;
+                log.info("Live registration of {} is ready, {} directories watched", rootPath, watchedDirectories.size());
+                processEvents();
+            } catch (ClosedWatchServiceException e) {
+                // Registration is closed
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Live registration of {} failed:", rootPath, e);
+                close();
+            }
+        });
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Path getRootPath() {
+        return rootPath;
+    }
+
+    public boolean isReady() {
+        return ready && !closed.get();
+    }
+
+    public int getWatchedDirectoryCount() {
+        return watchedDirectories.size();
+    }
+
+    public int getUnwatchedDirectoryCount() {
+        return unwatchedDirectories.size();
+    }
+
+    public int getFoundCount() {
+        return matches.size();
+    }
+
+    public List<String> getResult() {
+        return new ArrayList<>(matches.keySet());
+    }
+
+    public Map<String, List<String>> getMatchedTerms() {
+        return filter.reportsMatchedTerms() ? new HashMap<>(matches) : Map.of();
+    }
+
+    /**
+     * Starts rescan of subtrees which can't be watched on the shared pool, they can't be kept up to date otherwise.
+     * Does nothing if previous rescan is still running.
+     */
+    void rescanUnwatched() {
+        if (!isReady() || unwatchedDirectories.isEmpty() || !rescanningUnwatched.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture.runAsync(this::rescanUnwatchedNow, executor.getPool()).whenComplete((_, throwable) -> {
+            rescanningUnwatched.set(false);
+            if (throwable != null) {
+                log.warn("Rescan of unwatched directories of {} failed:", rootPath, throwable);
+            }
+        });
+    }
+
+    private void rescanUnwatchedNow() {
+        for (Path directory : unwatchedDirectories) {
+            if (closed.get()) {
+                return;
+            }
+            if (Files.isDirectory(directory)) {
+                rescan(directory);
+            } else {
+                unwatchedDirectories.remove(directory);
+                removeSubtree(directory);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Failed to close watch service of {}:", rootPath, e);
+            }
+        }
+    }
+
+    private void processEvents() throws InterruptedException {
+        while (!closed.get()) {
+            // Overflow is usually signalled on many keys at once, so keys which are ready now
+            // are handled together and each overflowed subtree is rescanned once
+            Set<Path> overflowed = new HashSet<>();
+            WatchKey watchKey = watchService.take();
+            for (int handled = 0; watchKey != null && handled < MAX_KEYS_PER_BATCH; handled++) {
+                handleEvents(watchKey, overflowed);
+                watchKey = watchService.poll();
+            }
+            if (watchKey != null) {
+                handleEvents(watchKey, overflowed);
+            }
+
+            for (Path directory : topmost(overflowed)) {
+                // Some events of the directory are lost, so its subtree is scanned again
+                log.info("Watch events of {} overflowed, rescanning it", directory);
+                registerTree(directory);
+                rescan(directory);
+            }
+        }
+    }
+
+    private void handleEvents(WatchKey watchKey, Set<Path> overflowed) {
+        Path directory = watchedDirectories.get(watchKey);
+        if (directory == null) {
+            watchKey.cancel();
+            return;
+        }
+
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowed.add(directory);
+                continue;
+            }
+
+            Path child = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                removeSubtree(child);
+            } else {
+                onCreatedOrModified(directory, child, event.kind() == StandardWatchEventKinds.ENTRY_CREATE);
+            }
+        }
+
+        if (!watchKey.reset()) {
+            // Directory is deleted or can't be watched anymore
+            watchedDirectories.remove(watchKey);
+        }
+    }
+
+    private static List<Path> topmost(Set<Path> directories) {
+        List<Path> sorted = new ArrayList<>(directories);
+        // Ancestors are sorted before their descendants
+        sorted.sort(Comparator.comparingInt(Path::getNameCount));
+        List<Path> topmost = new ArrayList<>();
+        for (Path directory : sorted) {
+            if (topmost.stream().noneMatch(directory::startsWith)) {
+                topmost.add(directory);
+            }
+        }
+        return topmost;
+    }
+
+    private void onCreatedOrModified(Path directory, Path child, boolean created) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(child, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // Already deleted, its delete event follows
+            removeSubtree(child);
+            return;
+        }
+
+        if (attributes.isRegularFile()) {
+            List<String> foundTerms = fileScanFilterMatcher.match(ScanEntry.of(child, attributes), filter);
+            if (foundTerms != null) {
+                matches.put(child.toString(), foundTerms);
+            } else {
+                matches.remove(child.toString());
+            }
+        } else if (attributes.isDirectory() && created && canDescend(directory)) {
+            // Files may be created in new directory before it's watched, so it's scanned after registration
+            registerTree(child);
+            rescan(child);
+        }
+    }
+
+    private void registerTree(Path directory) {
+        Deque<Path> pending = new ArrayDeque<>();
+        pending.push(directory);
+        while (!pending.isEmpty() && !closed.get()) {
+            Path next = pending.pop();
+            try {
+                WatchKey watchKey = next.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY
+                );
+                watchedDirectories.put(watchKey, next);
+            } catch (IOException e) {
+                // Watch limit is hit or directory can't be watched, its subtree is rescanned periodically
+                log.warn("Can't watch {}, it will be rescanned periodically: {}", next, e.getMessage());
+                unwatchedDirectories.add(next);
+                continue;
+            }
+
+            if (!canDescend(next)) {
+                continue;
+            }
+            try (var stream = Files.newDirectoryStream(next, Files::isDirectory)) {
+                stream.forEach(pending::push);
+            } catch (IOException | DirectoryIteratorException e) {
+                log.warn("Can't list {} to watch its subdirectories: {}", next, e.getMessage());
+            }
+        }
+    }
+
+    private void rescan(Path directory) {
+        ChunkedResultBuffer found = new ChunkedResultBuffer();
+        Map<String, List<String>> foundTerms = new ConcurrentHashMap<>();
+        try (ScanSlot slot = executor.register(parallelism)) {
+            executor.getPool().invoke(new RecursiveFileScanTask(
+                    fileScanFilterMatcher,
+                    directory,
+                    filter,
+                    depthLimit,
+                    relativeDepth(directory),
+                    found,
+                    foundTerms,
+                    closed,
+                    slot
+            ));
+        }
+        if (closed.get()) {
+            return;
+        }
+
+        // Replace matches of the subtree in place, so queries never see it empty
+        Set<String> foundPaths = new HashSet<>(found.snapshot());
+        subtree(directory).keySet().removeIf(path -> !foundPaths.contains(path));
+        for (String path : foundPaths) {
+            matches.put(path, foundTerms.getOrDefault(path, List.of()));
+        }
+    }
+
+    private void removeSubtree(Path path) {
+        matches.remove(path.toString());
+        subtree(path).clear();
+    }
+
+    private Map<String, List<String>> subtree(Path directory) {
+        String prefix = directory.toString();
+        return matches.subMap(prefix + File.separatorChar, prefix + (char) (File.separatorChar + 1));
+    }
+
+    private int relativeDepth(Path directory) {
+        return directory.getNameCount() - rootPath.getNameCount();
+    }
+
+    // The same depth semantics as in scan tasks: subdirectories are walked while directory depth is within the limit
+    private boolean canDescend(Path directory) {
+        return depthLimit == -1 || relativeDepth(directory) <= depthLimit;
+    }
+}
@@ -0,0 +1,147 @@
+package org.marakas73.service.filescanner.live;
+
+import jakarta.annotation.PreDestroy;
+import org.marakas73.config.FileScannerProperties;
+import org.marakas73.model.FileScanRequest;
+import org.marakas73.model.FileScanResult;
+import org.marakas73.service.filescanner.executor.SharedScanExecutor;
+import org.marakas73.service.filescanner.util.FileScanCacheUtils;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
+import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live registrations of frequently queried scans. Their results are kept in memory and updated by watch events,
+ * so scans with the same cache key are answered without walking the tree.
+ */
+@Service
+public class LiveScanService {
+    private static final Logger log = LoggerFactory.getLogger(LiveScanService.class);
+
+    private final FileScanFilterMatcher fileScanFilterMatcher;
+    private final SharedScanExecutor executor;
+    private final FileScanCacheUtils cacheUtils;
+    private final FileScannerProperties properties;
+
+    private final ConcurrentMap<String, LiveRegistration> registrations = new ConcurrentHashMap<>();
+
+    public LiveScanService(
+            FileScanFilterMatcher fileScanFilterMatcher,
+            SharedScanExecutor executor,
+            FileScanCacheUtils cacheUtils,
+            FileScannerProperties properties
+    ) {
+        this.fileScanFilterMatcher = fileScanFilterMatcher;
+        this.executor = executor;
+        this.cacheUtils = cacheUtils;
+        this.properties = properties;
+    }
+
+    /**
+     * Registers scan and starts watching its root, the same registration is returned for equivalent requests.
+     *
+     * @return registration key, it's the cache key of the scan.
+     */
+    public String register(FileScanRequest scanRequest) {
+        if (scanRequest.aggregation() != null) {
+            throw new IllegalArgumentException("Aggregation scans can't be registered as live");
+        }
+        if (scanRequest.maxResults() != null || scanRequest.exists()) {
+            throw new IllegalArgumentException("Scans with max results count can't be registered as live");
+        }
+        if (scanRequest.sort() != null) {
+            throw new IllegalArgumentException("Sorted scans can't be registered as live");
+        }
+        CompiledFileScanFilter compiledFilter = fileScanFilterMatcher.compile(scanRequest.scanFilter());
+        Path rootPath = cacheUtils.canonicalRootPath(scanRequest.directoryPath());
+        if (!Files.isDirectory(rootPath)) {
+            throw new IllegalArgumentException("Not a directory: " + rootPath);
+        }
+        String key = cacheUtils.buildScanCacheKey(rootPath, scanRequest.depthLimit(), compiledFilter);
+        int parallelism = Optional.ofNullable(scanRequest.threadsCount()).orElse(properties.getThreadsCount());
+
+        registrations.computeIfAbsent(key, _ -> {
+            if (registrations.size() >= properties.getLiveMaxRegistrations()) {
+                throw new IllegalStateException(
+                        "Cannot add live registration, limit exceeded: " + properties.getLiveMaxRegistrations()
+                );
+            }
+
+            LiveRegistration registration;
+            try {
+                registration = new LiveRegistration(
+                        key,
+                        rootPath,
+                        scanRequest.depthLimit(),
+                        compiledFilter,
+                        parallelism,
+                        fileScanFilterMatcher,
+                        executor
+                );
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            log.info("Live registration of {} with key {} is created", scanRequest, key);
+            registration.start();
+            return registration;
+        });
+        return key;
+    }
+
+    public boolean unregister(String key) {
+        LiveRegistration registration = registrations.remove(key);
+        if (registration == null) {
+            return false;
+        }
+
+        registration.close();
+        log.info("Live registration with key {} is removed", key);
+        return true;
+    }
+
+    public Collection<LiveRegistration> getRegistrations() {
+        return List.copyOf(registrations.values());
+    }
+
+    /**
+     * @return current result of live registration with the cache key, if it's registered and initially scanned.
+     */
+    public Optional<FileScanResult> getResult(String cacheKey) {
+        LiveRegistration registration = registrations.get(cacheKey);
+        if (registration == null || !registration.isReady()) {
+            return Optional.empty();
+        }
+
+        List<String> result = registration.getResult();
+        return Optional.of(new FileScanResult(
+                null, true, false, false, result, registration.getMatchedTerms(), result.size(), Map.of()
+        ));
+    }
+
+    @Scheduled(fixedDelayString = "${scanner.live-rescan-interval}", timeUnit = TimeUnit.SECONDS)
+    private void rescanUnwatched() {
+        // Rescans run on the shared pool, so other scheduled tasks are not blocked by the walks
+        registrations.values().forEach(LiveRegistration::rescanUnwatched);
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        registrations.values().forEach(LiveRegistration::close);
+        registrations.clear();
+    }
+}
@@ -0,0 +1,320 @@
+package org.marakas73.service.filescanner.result;
+
+import jakarta.annotation.Nullable;
+import org.marakas73.common.cache.codec.CompactPathList;
+import org.marakas73.common.cache.codec.PathListCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock-free append-only buffer of scan results shared by all scan tasks.
+ * Entries are stored in fixed-size chunks which are never copied or moved,
+ * snapshots are views of the published prefix of the buffer and don't copy anything either.
+ * Buffer with a capacity drops entries added after it's full and sets the stop flag of the scan.
+ * Buffer with a memory budget spills its oldest fully written chunks to a temp file when the budget is exceeded,
+ * spilled chunks are read from the file by snapshots. Buffer must be closed to delete the file.
+ */
+public final class ChunkedResultBuffer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ChunkedResultBuffer.class);
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // 4096 entries
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS; // 4096 chunks
+    private static final int PAGE_COUNT = (int) ((1L << 31) >>> (CHUNK_BITS + PAGE_BITS)); // Covers int index range
+
+    // Two-level directory of chunks, pages and chunks are allocated lazily
+    private final AtomicReferenceArray<AtomicReferenceArray<AtomicReferenceArray<String>>> pages =
+            new AtomicReferenceArray<>(PAGE_COUNT);
+
+    // Count of reserved slots, some of them can be not written yet
+    private final AtomicInteger reserved = new AtomicInteger();
+    // Length of the prefix where all slots are written
+    private final AtomicInteger published = new AtomicInteger();
+
+    private final int capacity;
+    // Set when the last slot is reserved, so scan tasks stop by it
+    @Nullable
+    private final AtomicBoolean stopFlag;
+
+    // Spilling is disabled without a directory
+    @Nullable
+    private final Path spillDirectory;
+    private final long memoryBudget;
+    // Estimated heap size of entries in chunks which are not spilled
+    private final LongAdder memoryBytes = new LongAdder();
+    private final ReentrantLock spillLock = new ReentrantLock();
+    // Created on first spill, guarded by spill lock
+    @Nullable
+    private ResultSpillFile spillFile;
+    // Chunks before this one are in the spill file, chunk index is the index of its record
+    private volatile int spilledChunks;
+    // Last chunk read from the spill file, entries are read in order by pages and caching
+    @Nullable
+    private volatile SpilledChunk lastReadChunk;
+    private volatile boolean closed;
+
+    public ChunkedResultBuffer() {
+        this(Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * @param capacity max count of entries, must be more than 0 for scan buffers.
+     * @param stopFlag flag which is set when buffer becomes full.
+     */
+    public ChunkedResultBuffer(int capacity, @Nullable AtomicBoolean stopFlag) {
+        this(capacity, stopFlag, null, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param spillDirectory directory of temp file of spilled chunks, spilling is disabled if it's {@code null}.
+     * @param memoryBudget estimated heap size of entries in bytes, chunks are spilled when it's exceeded.
+     */
+    public ChunkedResultBuffer(
+            int capacity,
+            @Nullable AtomicBoolean stopFlag,
+            @Nullable Path spillDirectory,
+            long memoryBudget
+    ) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative");
+        }
+        this.capacity = capacity;
+        this.stopFlag = stopFlag;
+        this.spillDirectory = spillDirectory;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return {@code false} if buffer is already full and value is dropped.
+     */
+    public boolean add(String value) {
+        int index = reserved.getAndIncrement();
+        if (index < 0 || index >= capacity) {
+            // Undo reservation, so counter doesn't overflow while late tasks keep adding
+            reserved.decrementAndGet();
+            if (index < 0) {
+                throw new IllegalStateException("Result buffer is full");
+            }
+            return false;
+        }
+        chunk(index, true).set(index & (CHUNK_SIZE - 1), value);
+        if (index == capacity - 1 && stopFlag != null) {
+            stopFlag.set(true);
+        }
+
+        if (spillDirectory != null) {
+            memoryBytes.add(estimateSize(value));
+            // Budget is checked once per chunk, only fully written chunks can be spilled anyway
+            if ((index & (CHUNK_SIZE - 1)) == CHUNK_SIZE - 1 && memoryBytes.sum() > memoryBudget) {
+                spill();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if all slots up to the capacity are reserved, they are written when scan tasks are joined.
+     */
+    public boolean isFull() {
+        return reserved.get() >= capacity;
+    }
+
+    /**
+     * @return count of entries which are visible to readers.
+     */
+    public int size() {
+        int length = published.get();
+        int limit = reserved.get();
+        while (length < limit) {
+            AtomicReferenceArray<String> chunk = chunk(length, false);
+            if (chunk == null || chunk.get(length & (CHUNK_SIZE - 1)) == null) {
+                // Slot is reserved but not written yet
+                break;
+            }
+            length++;
+        }
+
+        // Other readers can advance it concurrently, keep the biggest value
+        final int current = length;
+        return published.accumulateAndGet(current, Math::max);
+    }
+
+    public String get(int index) {
+        AtomicReferenceArray<String> chunk = chunk(index, false);
+        if (chunk != null) {
+            return chunk.get(index & (CHUNK_SIZE - 1));
+        }
+        // Chunk is released after it's spilled, so missing published chunk is in the spill file
+        return spilledChunk(index >>> CHUNK_BITS).entries().get(index & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * @return {@code true} if some entries are stored in the spill file.
+     */
+    public boolean isSpilled() {
+        return spilledChunks > 0;
+    }
+
+    /**
+     * @return view of all entries published at the moment, it doesn't change when new entries are added.
+     */
+    public List<String> snapshot() {
+        return new Snapshot(0, size());
+    }
+
+    /**
+     * Deletes the spill file, snapshots taken before can still read spilled entries.
+     */
+    @Override
+    public void close() {
+        spillLock.lock();
+        try {
+            closed = true;
+            if (spillFile != null) {
+                spillFile.close();
+            }
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    // Spills oldest fully written chunks until estimated size of the rest is within the budget
+    private void spill() {
+        if (!spillLock.tryLock()) {
+            // Other task spills already
+            return;
+        }
+        try {
+            int writtenChunks = size() >>> CHUNK_BITS;
+            while (!closed && spilledChunks < writtenChunks && memoryBytes.sum() > memoryBudget) {
+                spillChunk(spilledChunks);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Entries are kept in memory then, scan results are still complete
+            log.warn("Failed to spill scan results to {}: {}", spillDirectory, e.getMessage());
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    private void spillChunk(int chunkIndex) throws IOException {
+        AtomicReferenceArray<String> chunk = chunk(chunkIndex << CHUNK_BITS, false);
+        List<String> entries = new ArrayList<>(CHUNK_SIZE);
+        long chunkBytes = 0;
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            String entry = chunk.get(i);
+            entries.add(entry);
+            chunkBytes += estimateSize(entry);
+        }
+
+        if (spillFile == null) {
+            spillFile = ResultSpillFile.create(spillDirectory);
+            log.info("Scan results exceed memory budget of {} bytes, spilling them to a temp file", memoryBudget);
+        }
+        // Front coding without compression keeps entries readable one by one
+        int record = spillFile.append(PathListCodec.encode(entries, false));
+        if (record != chunkIndex) {
+            throw new IllegalStateException("Spilled chunk " + chunkIndex + " is stored as record " + record);
+        }
+
+        // Readers check the chunk before the spilled count, so chunk is released only after it's counted
+        spilledChunks = chunkIndex + 1;
+        int pageIndex = chunkIndex >>> PAGE_BITS;
+        pages.get(pageIndex).set(chunkIndex & (PAGE_SIZE - 1), null);
+        memoryBytes.add(-chunkBytes);
+    }
+
+    private SpilledChunk spilledChunk(int chunkIndex) {
+        SpilledChunk cached = lastReadChunk;
+        if (cached != null && cached.index() == chunkIndex) {
+            return cached;
+        }
+        if (chunkIndex >= spilledChunks) {
+            throw new IndexOutOfBoundsException("Chunk " + chunkIndex + " is not written yet");
+        }
+
+        SpilledChunk read = new SpilledChunk(chunkIndex, PathListCodec.decode(spillFile.read(chunkIndex)));
+        lastReadChunk = read;
+        return read;
+    }
+
+    // Heap size of a string with compact bytes and its slot reference
+    private static long estimateSize(String value) {
+        return 56 + value.length();
+    }
+
+    private AtomicReferenceArray<String> chunk(int index, boolean create) {
+        int chunkIndex = index >>> CHUNK_BITS;
+        int pageIndex = chunkIndex >>> PAGE_BITS;
+        int chunkInPage = chunkIndex & (PAGE_SIZE - 1);
+
+        AtomicReferenceArray<AtomicReferenceArray<String>> page = pages.get(pageIndex);
+        if (page == null) {
+            if (!create) {
+                return null;
+            }
+            pages.compareAndSet(pageIndex, null, new AtomicReferenceArray<>(PAGE_SIZE));
+            page = pages.get(pageIndex);
+        }
+
+        AtomicReferenceArray<String> chunk = page.get(chunkInPage);
+        if (chunk == null) {
+            if (!create) {
+                return null;
+            }
+            page.compareAndSet(chunkInPage, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = page.get(chunkInPage);
+        }
+        return chunk;
+    }
+
+    private record SpilledChunk(int index, CompactPathList entries) {
+    }
+
+    private final class Snapshot extends AbstractList<String> implements RandomAccess {
+        private final int from;
+        private final int to;
+
+        private Snapshot(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+            }
+            return ChunkedResultBuffer.this.get(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public List<String> subList(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("Sublist " + fromIndex + ".." + toIndex + " of " + size());
+            }
+            return new Snapshot(from + fromIndex, from + toIndex);
+        }
+    }
+}
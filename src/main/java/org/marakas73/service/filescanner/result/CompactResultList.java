@@ -0,0 +1,49 @@
+package org.marakas73.service.filescanner.result;
+
+import org.marakas73.common.cache.codec.CompactPathList;
+import org.marakas73.common.cache.codec.PathListCodec;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable compact copy of scan results, entries are front coded by chunks of fixed size.
+ * Chunks are encoded one by one, so encoding needs memory only for a single chunk besides the result.
+ */
+public final class CompactResultList extends AbstractList<String> implements RandomAccess {
+    private static final int CHUNK_SIZE = 4096;
+
+    private final List<CompactPathList> chunks;
+    private final int size;
+
+    private CompactResultList(List<CompactPathList> chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    public static CompactResultList of(List<String> entries) {
+        int size = entries.size();
+        List<CompactPathList> chunks = new ArrayList<>((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        for (int from = 0; from < size; from += CHUNK_SIZE) {
+            List<String> chunk = entries.subList(from, Math.min(from + CHUNK_SIZE, size));
+            // Front coding without compression keeps entries readable one by one
+            chunks.add(PathListCodec.decode(PathListCodec.encode(chunk, false)));
+        }
+        return new CompactResultList(chunks, size);
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return chunks.get(index / CHUNK_SIZE).get(index % CHUNK_SIZE);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
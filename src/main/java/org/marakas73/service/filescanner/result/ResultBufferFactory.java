@@ -0,0 +1,155 @@
+package org.marakas73.service.filescanner.result;
+
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.marakas73.config.FileScannerProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Creates result buffers of scans, each of them spills to its own temp file when it exceeds the memory budget.
+ * Other temp files of scans are created in the same directory.
+ * Each process uses its own run directory in the configured one, it's locked while the process is alive,
+ * so only run directories of processes which are gone are deleted on startup.
+ */
+@Component
+public class ResultBufferFactory {
+    private static final Logger log = LoggerFactory.getLogger(ResultBufferFactory.class);
+
+    private static final String RUN_DIRECTORY_PREFIX = "run-";
+    private static final String LOCK_FILE_NAME = ".lock";
+    private static final long NEW_DIRECTORY_MIN_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Path baseDirectory;
+    private final long memoryBudget;
+
+    private Path spillDirectory;
+    private FileChannel lockChannel;
+
+    public ResultBufferFactory(FileScannerProperties properties) {
+        this.baseDirectory = Paths.get(properties.getSpillDirectory()).toAbsolutePath();
+        this.memoryBudget = properties.getResultMemoryBudget();
+    }
+
+    @PostConstruct
+    private void prepareDirectory() throws IOException {
+        Files.createDirectories(baseDirectory);
+        deleteAbandonedDirectories();
+
+        spillDirectory = Files.createTempDirectory(baseDirectory, RUN_DIRECTORY_PREFIX);
+        lockChannel = FileChannel.open(
+                spillDirectory.resolve(LOCK_FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.WRITE
+        );
+        // Lock is released by OS when the process is gone
+        lockChannel.lock();
+        log.info("Spill directory is {}", spillDirectory);
+    }
+
+    @PreDestroy
+    private void deleteDirectory() {
+        deleteRunDirectory(spillDirectory);
+        try {
+            // Lock file is deleted before, so no other process can lock it after release
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("Failed to release lock of spill directory {}: {}", spillDirectory, e.getMessage());
+        }
+    }
+
+    private void deleteAbandonedDirectories() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(baseDirectory, RUN_DIRECTORY_PREFIX + "*")) {
+            for (Path directory : stream) {
+                try {
+                    if (isAbandoned(directory)) {
+                        deleteRunDirectory(directory);
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed to check spill directory {}: {}", directory, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static boolean isAbandoned(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+        // Just created directory may be not locked yet by its process
+        long age = System.currentTimeMillis() - Files.getLastModifiedTime(directory).toMillis();
+        if (age < NEW_DIRECTORY_MIN_AGE_MILLIS) {
+            return false;
+        }
+        Path lockFile = directory.resolve(LOCK_FILE_NAME);
+        if (!Files.exists(lockFile)) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE)) {
+            // Lock is held by a live process, lock of the same process throws
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return false;
+            }
+            lock.release();
+            return true;
+        } catch (OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    private static void deleteRunDirectory(Path directory) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Failed to delete spill file {}: {}", file, e.getMessage());
+                }
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            log.warn("Failed to delete spill directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * @return estimated heap size of results of one scan in bytes, 0 if results are kept in memory.
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return new empty temp file in the run directory, it's deleted on shutdown if it's left.
+     */
+    public Path createSpillFile(String prefix) throws IOException {
+        return Files.createTempFile(spillDirectory, prefix, ResultSpillFile.FILE_SUFFIX);
+    }
+
+    /**
+     * @param maxResults max count of entries or {@code null} if it's not limited.
+     * @param stopFlag flag which is set when max count of entries is added.
+     */
+    public ChunkedResultBuffer create(@Nullable Integer maxResults, AtomicBoolean stopFlag) {
+        return new ChunkedResultBuffer(
+                maxResults != null ? maxResults : Integer.MAX_VALUE,
+                maxResults != null ? stopFlag : null,
+                // Budget of 0 disables spilling
+                memoryBudget > 0 ? spillDirectory : null,
+                memoryBudget
+        );
+    }
+}
@@ -0,0 +1,123 @@
+package org.marakas73.service.filescanner.result;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only temp file of encoded result chunks, mapped to memory by fixed-size segments.
+ * Records are indexed by their offsets in memory, record never crosses segment boundary.
+ * Mapped segments stay readable after the file is closed and deleted, so late snapshot readers don't fail.
+ */
+final class ResultSpillFile implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ResultSpillFile.class);
+
+    static final String FILE_PREFIX = "scan-";
+    static final String FILE_SUFFIX = ".spill";
+
+    private static final int SEGMENT_SIZE = 1 << 26; // 64 MiB
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    // Offset of each record in the file and its length
+    private long[] offsets = new long[64];
+    private int[] lengths = new int[64];
+    private int recordCount;
+    private long position;
+    private boolean closed;
+
+    private ResultSpillFile(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    static ResultSpillFile create(Path directory) throws IOException {
+        Path path = Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new ResultSpillFile(path, channel);
+    }
+
+    /**
+     * @return index of appended record, records are indexed in order of appending.
+     */
+    synchronized int append(byte[] bytes) throws IOException {
+        if (closed) {
+            throw new IOException("Spill file is closed: " + path);
+        }
+        if (bytes.length > SEGMENT_SIZE) {
+            throw new IOException("Record is bigger than spill segment: " + bytes.length);
+        }
+
+        int inSegment = (int) (position % SEGMENT_SIZE);
+        if (inSegment + bytes.length > SEGMENT_SIZE) {
+            // Rest of the segment is left unused
+            position += SEGMENT_SIZE - inSegment;
+            inSegment = 0;
+        }
+        int segment = (int) (position / SEGMENT_SIZE);
+        if (segment == segments.size()) {
+            // Mapping beyond the end grows the file
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segment * SEGMENT_SIZE, SEGMENT_SIZE));
+        }
+        segments.get(segment).put(inSegment, bytes);
+
+        if (recordCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, recordCount * 2);
+            lengths = Arrays.copyOf(lengths, recordCount * 2);
+        }
+        offsets[recordCount] = position;
+        lengths[recordCount] = bytes.length;
+        position += bytes.length;
+        return recordCount++;
+    }
+
+    byte[] read(int record) {
+        MappedByteBuffer segment;
+        long offset;
+        byte[] bytes;
+        synchronized (this) {
+            if (record >= recordCount) {
+                throw new IndexOutOfBoundsException("Record " + record + " out of bounds for " + recordCount);
+            }
+            offset = offsets[record];
+            bytes = new byte[lengths[record]];
+            segment = segments.get((int) (offset / SEGMENT_SIZE));
+        }
+        // Absolute reads don't touch buffer position, so they can run concurrently
+        segment.get((int) (offset % SEGMENT_SIZE), bytes);
+        return bytes;
+    }
+
+    /**
+     * @return count of bytes used by records and skipped segment tails.
+     */
+    synchronized long size() {
+        return position;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+            // Mapped segments keep the data until they are garbage collected
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete spill file {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.marakas73.service.filescanner.snapshot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of a single directory seen by previous scan with the same cache key.
+ *
+ * @param lastModifiedMillis directory last modified time when it was listed.
+ * @param listedAtMillis time when directory was listed, it's kept when snapshot is reused.
+ * @param subdirectories names of subdirectories which were descended into.
+ * @param files all regular files of the directory.
+ * @param matchedTerms found content terms by matched file name, empty if filter doesn't report them.
+ */
+public record DirectorySnapshot(
+        long lastModifiedMillis,
+        long listedAtMillis,
+        List<String> subdirectories,
+        List<FileSnapshot> files,
+        Map<String, List<String>> matchedTerms
+) {
+}
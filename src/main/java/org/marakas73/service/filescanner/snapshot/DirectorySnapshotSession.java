@@ -0,0 +1,106 @@
+package org.marakas73.service.filescanner.snapshot;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Directory snapshots of a single scan: snapshots of previous scan to reuse
+ * and snapshots of the current one, which are stored when scan is fully completed.
+ * Current snapshots are dropped once they exceed max entries count, so memory used by them is bounded.
+ */
+public final class DirectorySnapshotSession {
+    // Entry modified within this window before it was read may be changed again
+    // in the same timestamp tick after it, so it's read again
+    private static final long RACY_WINDOW_MILLIS = 2000;
+
+    private final Map<String, DirectorySnapshot> previous;
+    private final long maxAgeMillis;
+    private final int maxEntries;
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final ConcurrentMap<String, DirectorySnapshot> current = new ConcurrentHashMap<>();
+
+    private final AtomicInteger entryCount = new AtomicInteger();
+    private volatile boolean overflowed;
+
+    private final AtomicInteger reusedCount = new AtomicInteger();
+    private final AtomicInteger listedCount = new AtomicInteger();
+
+    /**
+     * @param maxAgeMillis max age of directory listing, older directories are listed again.
+     * @param maxEntries max count of files and directories in current snapshots.
+     */
+    DirectorySnapshotSession(Map<String, DirectorySnapshot> previous, long maxAgeMillis, int maxEntries) {
+        this.previous = previous;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return previous snapshot of the directory if directory entries are not changed since it,
+     *         otherwise {@code null}. Files of the snapshot still must be checked by {@link #isUnchanged}.
+     */
+    public DirectorySnapshot findUnchanged(Path directory, long lastModifiedMillis) {
+        DirectorySnapshot snapshot = previous.get(directory.toString());
+        if (snapshot == null
+                || snapshot.lastModifiedMillis() != lastModifiedMillis
+                || lastModifiedMillis >= snapshot.listedAtMillis() - RACY_WINDOW_MILLIS
+                || snapshot.listedAtMillis() < startedAtMillis - maxAgeMillis) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return {@code true} if file has the same attributes as in the snapshot, so its match can be reused.
+     */
+    public boolean isUnchanged(FileSnapshot file, long size, long lastModifiedMillis) {
+        return file.size() == size
+                && file.lastModifiedMillis() == lastModifiedMillis
+                && lastModifiedMillis < file.checkedAtMillis() - RACY_WINDOW_MILLIS;
+    }
+
+    public void recordReused(Path directory, DirectorySnapshot snapshot) {
+        record(directory, snapshot);
+        reusedCount.incrementAndGet();
+    }
+
+    public void recordListed(Path directory, DirectorySnapshot snapshot) {
+        record(directory, snapshot);
+        listedCount.incrementAndGet();
+    }
+
+    private void record(Path directory, DirectorySnapshot snapshot) {
+        if (overflowed) {
+            return;
+        }
+        int entries = 1 + snapshot.subdirectories().size() + snapshot.files().size();
+        if (entryCount.addAndGet(entries) > maxEntries) {
+            overflowed = true;
+            current.clear();
+            return;
+        }
+        current.put(directory.toString(), snapshot);
+    }
+
+    /**
+     * @return {@code true} if current snapshots exceeded max entries count and are dropped.
+     */
+    boolean isOverflowed() {
+        return overflowed;
+    }
+
+    Map<String, DirectorySnapshot> getCurrent() {
+        return current;
+    }
+
+    public int getReusedCount() {
+        return reusedCount.get();
+    }
+
+    public int getListedCount() {
+        return listedCount.get();
+    }
+}
@@ -0,0 +1,195 @@
+package org.marakas73.service.filescanner.snapshot;
+
+import jakarta.annotation.PostConstruct;
+import org.marakas73.config.FileScannerProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores directory snapshots of fully completed scans on disk, one file per scan cache key.
+ * Cache key covers root, depth limit and filter, so snapshot is never reused by a different scan.
+ * Scans of trees bigger than max entries count are not snapshotted.
+ */
+@Component
+public class DirectorySnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(DirectorySnapshotStore.class);
+
+    private static final int MAGIC = 0x44534E32; // "DSN2"
+    private static final String FILE_SUFFIX = ".snapshot";
+
+    private final Path snapshotDirectory;
+    private final long maxAgeMillis;
+    private final int maxEntries;
+
+    public DirectorySnapshotStore(FileScannerProperties properties) {
+        this.snapshotDirectory = Paths.get(properties.getSnapshotDirectory()).toAbsolutePath();
+        this.maxAgeMillis = TimeUnit.SECONDS.toMillis(properties.getSnapshotMaxAge());
+        this.maxEntries = properties.getSnapshotMaxEntries();
+    }
+
+    /**
+     * @return {@code false} if snapshots are disabled by max entries count of 0.
+     */
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    @PostConstruct
+    private void createDirectory() throws IOException {
+        Files.createDirectories(snapshotDirectory);
+    }
+
+    /**
+     * @return session with snapshots of previous scan, or with no snapshots if there is no one.
+     *         Directories listed before max age are not reused by the session.
+     */
+    public DirectorySnapshotSession open(String cacheKey) {
+        Path file = snapshotDirectory.resolve(cacheKey + FILE_SUFFIX);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 1 << 16)
+        ))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a directory snapshot file: " + file);
+            }
+            int directoryCount = in.readInt();
+            Map<String, DirectorySnapshot> snapshots = new HashMap<>(directoryCount * 4 / 3 + 1);
+            for (int i = 0; i < directoryCount; i++) {
+                String directory = in.readUTF();
+                long lastModifiedMillis = in.readLong();
+                long listedAtMillis = in.readLong();
+                List<String> subdirectories = readNames(in);
+
+                int fileCount = in.readInt();
+                List<FileSnapshot> files = new ArrayList<>(fileCount);
+                for (int j = 0; j < fileCount; j++) {
+                    files.add(new FileSnapshot(
+                            in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readBoolean()
+                    ));
+                }
+
+                int termsCount = in.readInt();
+                Map<String, List<String>> matchedTerms = termsCount == 0 ? Map.of() : new HashMap<>();
+                for (int j = 0; j < termsCount; j++) {
+                    matchedTerms.put(in.readUTF(), readNames(in));
+                }
+                snapshots.put(directory, new DirectorySnapshot(
+                        lastModifiedMillis, listedAtMillis, subdirectories, files, matchedTerms
+                ));
+            }
+            return new DirectorySnapshotSession(snapshots, maxAgeMillis, maxEntries);
+        } catch (NoSuchFileException e) {
+            return new DirectorySnapshotSession(Map.of(), maxAgeMillis, maxEntries);
+        } catch (IOException e) {
+            log.warn("Failed to read directory snapshot {}:", file, e);
+            return new DirectorySnapshotSession(Map.of(), maxAgeMillis, maxEntries);
+        }
+    }
+
+    /**
+     * Replaces stored snapshot of the cache key with snapshots of the session,
+     * stored snapshot is removed if snapshots of the session exceeded max entries count.
+     */
+    public void save(String cacheKey, DirectorySnapshotSession session) {
+        Path file = snapshotDirectory.resolve(cacheKey + FILE_SUFFIX);
+        Path tempFile = snapshotDirectory.resolve(cacheKey + FILE_SUFFIX + ".tmp");
+        if (session.isOverflowed()) {
+            log.info("Directory snapshot {} is not stored, scan has more than {} entries", file, maxEntries);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to remove directory snapshot {}:", file, e);
+            }
+            return;
+        }
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(tempFile), 1 << 16)
+            ))) {
+                Map<String, DirectorySnapshot> snapshots = session.getCurrent();
+                out.writeInt(MAGIC);
+                out.writeInt(snapshots.size());
+                for (Map.Entry<String, DirectorySnapshot> entry : snapshots.entrySet()) {
+                    DirectorySnapshot snapshot = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(snapshot.lastModifiedMillis());
+                    out.writeLong(snapshot.listedAtMillis());
+                    writeNames(out, snapshot.subdirectories());
+
+                    out.writeInt(snapshot.files().size());
+                    for (FileSnapshot fileSnapshot : snapshot.files()) {
+                        out.writeUTF(fileSnapshot.name());
+                        out.writeLong(fileSnapshot.size());
+                        out.writeLong(fileSnapshot.lastModifiedMillis());
+                        out.writeLong(fileSnapshot.checkedAtMillis());
+                        out.writeBoolean(fileSnapshot.matched());
+                    }
+
+                    out.writeInt(snapshot.matchedTerms().size());
+                    for (Map.Entry<String, List<String>> terms : snapshot.matchedTerms().entrySet()) {
+                        out.writeUTF(terms.getKey());
+                        writeNames(out, terms.getValue());
+                    }
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to store directory snapshot {}:", file, e);
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+                // Temp file is overwritten by next save anyway
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${scanner.snapshot-max-age}", timeUnit = TimeUnit.SECONDS)
+    private void removeExpiredSnapshots() {
+        long minModifiedMillis = System.currentTimeMillis() - maxAgeMillis;
+        try (Stream<Path> files = Files.list(snapshotDirectory)) {
+            for (Path file : files.toList()) {
+                if (Files.getLastModifiedTime(file).toMillis() < minModifiedMillis) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to remove expired directory snapshots:", e);
+        }
+    }
+
+    private static void writeNames(DataOutputStream out, List<String> names) throws IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    private static List<String> readNames(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(in.readUTF());
+        }
+        return names;
+    }
+}
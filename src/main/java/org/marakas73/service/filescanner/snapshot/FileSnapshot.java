@@ -0,0 +1,19 @@
+package org.marakas73.service.filescanner.snapshot;
+
+/**
+ * State of a single regular file seen by previous scan, its match is reused only if the file is not changed.
+ *
+ * @param name file name in its directory.
+ * @param size file size when it was matched.
+ * @param lastModifiedMillis file last modified time when it was matched.
+ * @param checkedAtMillis time when file attributes were read.
+ * @param matched whether file was matched by the filter.
+ */
+public record FileSnapshot(
+        String name,
+        long size,
+        long lastModifiedMillis,
+        long checkedAtMillis,
+        boolean matched
+) {
+}
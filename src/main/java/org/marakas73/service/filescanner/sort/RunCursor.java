@@ -0,0 +1,81 @@
+package org.marakas73.service.filescanner.sort;
+
+import jakarta.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads records of a sorted run one by one, run is kept in memory or spilled to a file.
+ */
+final class RunCursor implements Closeable {
+    private static final int FILE_BUFFER_SIZE = 1 << 16;
+
+    @Nullable
+    private final Iterator<SortRecord> records;
+    @Nullable
+    private final DataInputStream in;
+    // Records left in the run file
+    private int remaining;
+    private SortRecord head;
+
+    private RunCursor(@Nullable Iterator<SortRecord> records, @Nullable DataInputStream in, int remaining) {
+        this.records = records;
+        this.in = in;
+        this.remaining = remaining;
+    }
+
+    static RunCursor of(List<SortRecord> sorted) {
+        return new RunCursor(sorted.iterator(), null, 0);
+    }
+
+    static RunCursor open(Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), FILE_BUFFER_SIZE));
+        try {
+            return new RunCursor(null, in, in.readInt());
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return current record, it's valid after {@link #advance()} returned {@code true}.
+     */
+    SortRecord head() {
+        return head;
+    }
+
+    /**
+     * @return {@code false} if run has no more records.
+     */
+    boolean advance() throws IOException {
+        if (records != null) {
+            if (!records.hasNext()) {
+                return false;
+            }
+            head = records.next();
+            return true;
+        }
+
+        if (remaining == 0) {
+            return false;
+        }
+        head = new SortRecord(in.readUTF(), in.readLong(), in.readLong());
+        remaining--;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+}
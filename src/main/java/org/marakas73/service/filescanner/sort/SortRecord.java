@@ -0,0 +1,32 @@
+package org.marakas73.service.filescanner.sort;
+
+import org.marakas73.model.FileScanSort;
+
+import java.util.Comparator;
+
+/**
+ * Sort values of a single matched file.
+ */
+record SortRecord(
+        String path,
+        long size,
+        long lastModifiedMillis
+) {
+    /**
+     * @return total order of records, records with equal sort values are ordered by path.
+     */
+    static Comparator<SortRecord> comparator(FileScanSort sort) {
+        Comparator<SortRecord> byPath = Comparator.comparing(SortRecord::path);
+        Comparator<SortRecord> comparator = switch (sort.field()) {
+            case PATH -> byPath;
+            case SIZE -> Comparator.comparingLong(SortRecord::size).thenComparing(byPath);
+            case LAST_MODIFIED -> Comparator.comparingLong(SortRecord::lastModifiedMillis).thenComparing(byPath);
+        };
+        return sort.descending() ? comparator.reversed() : comparator;
+    }
+
+    // Heap size of the record, its path string and its list slot reference
+    long estimateSize() {
+        return 88 + path.length();
+    }
+}
@@ -0,0 +1,101 @@
+package org.marakas73.service.filescanner.sort;
+
+import org.marakas73.service.filescanner.result.ResultBufferFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted runs of records matched by a single worker. Run is sorted and spilled to a file
+ * when it exceeds the memory budget of the worker, the last run is sorted in memory.
+ */
+final class SortedRunCollector {
+    private static final Logger log = LoggerFactory.getLogger(SortedRunCollector.class);
+
+    private static final String RUN_FILE_PREFIX = "sort-";
+    private static final int FILE_BUFFER_SIZE = 1 << 16;
+
+    private final Comparator<SortRecord> comparator;
+    private final long runBudget;
+    private final ResultBufferFactory spillFiles;
+
+    private final List<SortRecord> records = new ArrayList<>();
+    private final List<Path> spilledRuns = new ArrayList<>();
+    private long recordsSize;
+
+    SortedRunCollector(Comparator<SortRecord> comparator, long runBudget, ResultBufferFactory spillFiles) {
+        this.comparator = comparator;
+        this.runBudget = runBudget;
+        this.spillFiles = spillFiles;
+    }
+
+    void add(SortRecord record) {
+        records.add(record);
+        recordsSize += record.estimateSize();
+        if (recordsSize > runBudget) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @return cursors of spilled runs and of the sorted in-memory run.
+     */
+    List<RunCursor> openRuns() throws IOException {
+        List<RunCursor> runs = new ArrayList<>(spilledRuns.size() + 1);
+        try {
+            for (Path file : spilledRuns) {
+                runs.add(RunCursor.open(file));
+            }
+        } catch (IOException e) {
+            for (RunCursor run : runs) {
+                run.close();
+            }
+            throw e;
+        }
+        records.sort(comparator);
+        runs.add(RunCursor.of(records));
+        return runs;
+    }
+
+    void deleteSpilledRuns() {
+        for (Path file : spilledRuns) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete sorted run file {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private void spill() throws IOException {
+        records.sort(comparator);
+        Path file = spillFiles.createSpillFile(RUN_FILE_PREFIX);
+        // Added before writing, so file is deleted even if writing fails
+        spilledRuns.add(file);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), FILE_BUFFER_SIZE)
+        )) {
+            out.writeInt(records.size());
+            for (SortRecord record : records) {
+                out.writeUTF(record.path());
+                out.writeLong(record.size());
+                out.writeLong(record.lastModifiedMillis());
+            }
+        }
+        records.clear();
+        recordsSize = 0;
+    }
+}
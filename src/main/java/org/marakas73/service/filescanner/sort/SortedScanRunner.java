@@ -0,0 +1,164 @@
+package org.marakas73.service.filescanner.sort;
+
+import org.marakas73.model.FileScanSort;
+import org.marakas73.service.filescanner.RecursiveFileScanTask;
+import org.marakas73.service.filescanner.engine.FileScanJob;
+import org.marakas73.service.filescanner.executor.ScanSlot;
+import org.marakas73.service.filescanner.executor.SharedScanExecutor;
+import org.marakas73.service.filescanner.result.ChunkedResultBuffer;
+import org.marakas73.service.filescanner.result.ResultBufferFactory;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
+import org.marakas73.service.filtermatcher.FileScanFilterMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs scan with sorted result. Each worker collects sorted runs of its matched files, runs which exceed
+ * the memory budget are spilled to files. When the walk is completed, runs are merged by a k-way merge
+ * into the result buffer, so result is published in sorted order only when it's complete.
+ */
+@Component
+public class SortedScanRunner {
+    private static final Logger log = LoggerFactory.getLogger(SortedScanRunner.class);
+
+    private final FileScanFilterMatcher fileScanFilterMatcher;
+    private final SharedScanExecutor executor;
+    private final ResultBufferFactory resultBufferFactory;
+
+    public SortedScanRunner(
+            FileScanFilterMatcher fileScanFilterMatcher,
+            SharedScanExecutor executor,
+            ResultBufferFactory resultBufferFactory
+    ) {
+        this.fileScanFilterMatcher = fileScanFilterMatcher;
+        this.executor = executor;
+        this.resultBufferFactory = resultBufferFactory;
+    }
+
+    /**
+     * @return future of all found file paths in sorted order, it's a snapshot of job partial results buffer.
+     */
+    public CompletableFuture<List<String>> start(FileScanJob job, FileScanSort sort) {
+        if (sort.field() == null) {
+            throw new IllegalArgumentException("Sort field is required");
+        }
+        Comparator<SortRecord> comparator = SortRecord.comparator(sort);
+        // Scan budget is shared by its workers, budget of 0 keeps all runs in memory
+        long runBudget = resultBufferFactory.getMemoryBudget() > 0
+                ? Math.max(resultBufferFactory.getMemoryBudget() / job.parallelism(), 1)
+                : Long.MAX_VALUE;
+        Supplier<SortedRunCollector> collectorFactory =
+                () -> new SortedRunCollector(comparator, runBudget, resultBufferFactory);
+
+        CompiledFileScanFilter filter = job.filter();
+        ConcurrentMap<Thread, SortedRunCollector> collectors = new ConcurrentHashMap<>();
+        ScanSlot slot = executor.register(job.parallelism());
+
+        CompletableFuture<List<String>> future = CompletableFuture.supplyAsync(() -> {
+            log.info("Scan task with token {} started, sorted by {}", job.token(), sort);
+            try {
+                // Matched files are passed to collectors, result buffer is filled by the merge
+                new RecursiveFileScanTask(
+                        fileScanFilterMatcher,
+                        job.rootPath(),
+                        filter,
+                        job.depthLimit(),
+                        0,
+                        job.partial(),
+                        job.matchedTerms(),
+                        job.interrupted(),
+                        slot,
+                        entry -> {
+                            if (!entry.isRegularFile()) {
+                                return;
+                            }
+                            List<String> foundTerms = fileScanFilterMatcher.match(entry, filter);
+                            if (foundTerms != null) {
+                                String pathStr = entry.path().toString();
+                                if (filter.reportsMatchedTerms()) {
+                                    job.matchedTerms().put(pathStr, foundTerms);
+                                }
+                                workerCollector(collectors, collectorFactory).add(
+                                        new SortRecord(pathStr, entry.size(), entry.lastModifiedMillis())
+                                );
+                            }
+                        },
+                        null,
+                        -1
+                ).invoke();
+
+                // All tasks are joined, so workers don't use their collectors anymore
+                merge(collectors.values(), comparator, job.partial());
+                return job.partial().snapshot();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                collectors.values().forEach(SortedRunCollector::deleteSpilledRuns);
+            }
+        }, executor.getPool());
+
+        // Give scan share of workers back to other scans
+        future.whenComplete((_, _) -> slot.close());
+        return future;
+    }
+
+    private static void merge(
+            Collection<SortedRunCollector> collectors,
+            Comparator<SortRecord> comparator,
+            ChunkedResultBuffer partial
+    ) throws IOException {
+        List<RunCursor> runs = new ArrayList<>();
+        try {
+            for (SortedRunCollector collector : collectors) {
+                runs.addAll(collector.openRuns());
+            }
+
+            // Heap of runs by their current records, the smallest record is written next
+            PriorityQueue<RunCursor> heads = new PriorityQueue<>(
+                    Math.max(runs.size(), 1),
+                    (a, b) -> comparator.compare(a.head(), b.head())
+            );
+            for (RunCursor run : runs) {
+                if (run.advance()) {
+                    heads.add(run);
+                }
+            }
+            while (!heads.isEmpty()) {
+                RunCursor run = heads.poll();
+                if (!partial.add(run.head().path())) {
+                    // Max results count is reached
+                    break;
+                }
+                if (run.advance()) {
+                    heads.add(run);
+                }
+            }
+        } finally {
+            for (RunCursor run : runs) {
+                run.close();
+            }
+        }
+    }
+
+    private static SortedRunCollector workerCollector(
+            ConcurrentMap<Thread, SortedRunCollector> collectors,
+            Supplier<SortedRunCollector> collectorFactory
+    ) {
+        Thread worker = Thread.currentThread();
+        SortedRunCollector collector = collectors.get(worker);
+        return collector != null ? collector : collectors.computeIfAbsent(worker, _ -> collectorFactory.get());
+    }
+}
@@ -1,7 +1,14 @@
 package org.marakas73.service.filescanner.util;
 
+import jakarta.annotation.Nullable;
 import org.marakas73.common.cache.CacheSizeEvaluator;
-import org.marakas73.model.FileScanRequest;
+import org.marakas73.common.cache.SerializedCacheValue;
+import org.marakas73.config.FileScannerProperties;
+import org.marakas73.model.CachedResultManifest;
+import org.marakas73.model.FileScanAggregate;
+import org.marakas73.model.FileScanAggregation;
+import org.marakas73.model.FileScanSort;
+import org.marakas73.service.filtermatcher.CompiledFileScanFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.Cache;
@@ -9,7 +16,17 @@ import org.springframework.cache.CacheManager;
 import org.springframework.data.redis.RedisSystemException;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Component
@@ -18,16 +35,62 @@ public class FileScanCacheUtils {
 
     private final CacheManager cacheManager;
     private final CacheSizeEvaluator cacheSizeEvaluator;
+    private final int chunkSize;
 
-    public FileScanCacheUtils(CacheManager cacheManager, CacheSizeEvaluator cacheSizeEvaluator) {
+    public FileScanCacheUtils(
+            CacheManager cacheManager,
+            CacheSizeEvaluator cacheSizeEvaluator,
+            FileScannerProperties properties
+    ) {
         this.cacheManager = cacheManager;
         this.cacheSizeEvaluator = cacheSizeEvaluator;
+        this.chunkSize = properties.getCacheChunkSize();
     }
 
-    public String buildScanCacheKey(FileScanRequest scanRequest) {
-        return scanRequest.directoryPath()
-                + ":" + scanRequest.depthLimit()
-                + ":" + scanRequest.scanFilter();
+    /**
+     * @return absolute normalized path with resolved links, or just normalized one if path can't be resolved.
+     */
+    public Path canonicalRootPath(String directoryPath) {
+        Path normalized = Paths.get(directoryPath).toAbsolutePath().normalize();
+        try {
+            return normalized.toRealPath();
+        } catch (IOException | SecurityException e) {
+            return normalized;
+        }
+    }
+
+    /**
+     * Builds digest of canonical scan parameters, so equivalent requests have the same key.
+     */
+    public String buildScanCacheKey(Path rootPath, @Nullable Integer depthLimit, CompiledFileScanFilter scanFilter) {
+        return buildScanCacheKey(rootPath, depthLimit, scanFilter, null, null, null);
+    }
+
+    /**
+     * Same as {@link #buildScanCacheKey(Path, Integer, CompiledFileScanFilter)},
+     * aggregation scans, scans with max results count and sorted scans get their own keys.
+     */
+    public String buildScanCacheKey(
+            Path rootPath,
+            @Nullable Integer depthLimit,
+            CompiledFileScanFilter scanFilter,
+            @Nullable FileScanAggregation aggregation,
+            @Nullable Integer maxResults,
+            @Nullable FileScanSort sort
+    ) {
+        String canonical = rootPath
+                + "|" + (depthLimit != null ? depthLimit : -1) // -1 is default value for unlimited depth
+                + "|" + scanFilter.fingerprint()
+                + (aggregation != null ? "|" + aggregation.mode() + ":" + aggregation.limit() : "")
+                + (maxResults != null ? "|max:" + maxResults : "")
+                + (sort != null ? "|sort:" + sort.field() + (sort.descending() ? ":desc" : ":asc") : "");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is supported by every Java platform
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
@@ -36,8 +99,10 @@ public class FileScanCacheUtils {
     public boolean putValueInCache(String key, Object value, String cacheName) {
         try {
             Cache cache = cacheManager.getCache(cacheName);
-            if (cache != null && !cacheSizeEvaluator.isTooBig(value)) {
-                cache.put(key, value);
+            // Value is serialized once, its bytes are measured and written to cache as they are
+            SerializedCacheValue serialized = cache != null ? cacheSizeEvaluator.serializeWithinLimit(value) : null;
+            if (serialized != null) {
+                cache.put(key, serialized);
                 log.info("Cached value in Redis with key: {}", key);
                 return true;
             } else {
@@ -53,24 +118,174 @@ public class FileScanCacheUtils {
         }
     }
 
+    /**
+     * Stores result as fixed-size chunks and the manifest under the key, so it can be read by pages.
+     * Matched terms of each chunk files are stored under the same chunk key in matched terms cache.
+     * Manifest is stored last, so readers never see partially stored result.
+     *
+     * @param limitReached {@code true} if result is complete because scan is stopped by max results count.
+     * @return {@code true} if result and its matched terms cached successfully
+     */
+    public boolean putResultInCache(
+            String key,
+            List<String> result,
+            Map<String, List<String>> matchedTerms,
+            boolean limitReached,
+            String cacheName,
+            String matchedTermsCacheName
+    ) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Cache termsCache = cacheManager.getCache(matchedTermsCacheName);
+        if (cache == null || termsCache == null) {
+            log.warn("Cache {} or {} not found for key {}", cacheName, matchedTermsCacheName, key);
+            return false;
+        }
+
+        int chunkCount = (result.size() + chunkSize - 1) / chunkSize;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int from = chunk * chunkSize;
+            // Copy to plain list, so it can be deserialized from cache
+            List<String> chunkResult = new ArrayList<>(result.subList(from, Math.min(from + chunkSize, result.size())));
+
+            boolean cached = putValueInCache(chunkKey(key, chunk), chunkResult, cacheName);
+            if (cached && !matchedTerms.isEmpty()) {
+                Map<String, List<String>> chunkTerms = new HashMap<>();
+                for (String path : chunkResult) {
+                    List<String> terms = matchedTerms.get(path);
+                    if (terms != null) {
+                        chunkTerms.put(path, terms);
+                    }
+                }
+                cached = chunkTerms.isEmpty() || putValueInCache(chunkKey(key, chunk), chunkTerms, matchedTermsCacheName);
+            }
+
+            if (!cached) {
+                // Remove already stored chunks, result is cached as a whole or not cached at all
+                for (int stored = 0; stored <= chunk; stored++) {
+                    cache.evict(chunkKey(key, stored));
+                    termsCache.evict(chunkKey(key, stored));
+                }
+                return false;
+            }
+        }
+
+        return putValueInCache(
+                key, new CachedResultManifest(result.size(), chunkSize, chunkCount, limitReached), cacheName
+        );
+    }
+
+    public Optional<CachedResultManifest> getCachedManifest(String key, String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            Cache.ValueWrapper wrapper = cache.get(key);
+            if (wrapper != null && wrapper.get() instanceof CachedResultManifest manifest) {
+                return Optional.of(manifest);
+            }
+        }
+
+        return Optional.empty();
+    }
+
     public Optional<List<String>> getCachedResult(String key, String cacheName) {
-        // Check if result is already cached
+        return getCachedManifest(key, cacheName)
+                .flatMap(manifest -> getCachedResultPage(key, cacheName, manifest, 0, manifest.size()));
+    }
+
+    /**
+     * Reads only chunks which contain requested page of cached result.
+     *
+     * @return page of result between {@code from} inclusive and {@code to} exclusive indexes
+     * or empty optional if any of needed chunks is already evicted.
+     */
+    public Optional<List<String>> getCachedResultPage(
+            String key,
+            String cacheName,
+            CachedResultManifest manifest,
+            int from,
+            int to
+    ) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return Optional.empty();
+        }
+
+        List<String> page = new ArrayList<>(to - from);
+        for (int chunk = from / manifest.chunkSize(); chunk * manifest.chunkSize() < to; chunk++) {
+            // Use wrapper to avoid generics problem
+            Cache.ValueWrapper wrapper = cache.get(chunkKey(key, chunk));
+            if (wrapper == null || wrapper.get() == null) {
+                // Chunk expired before the manifest, consider whole result as not cached
+                log.warn("Chunk {} of cached result with key {} is missing", chunk, key);
+                cache.evict(key);
+                return Optional.empty();
+            }
+
+            @SuppressWarnings("unchecked")
+            List<String> chunkResult = (List<String>) wrapper.get();
+            int chunkStart = chunk * manifest.chunkSize();
+            page.addAll(chunkResult.subList(
+                    Math.max(from - chunkStart, 0),
+                    Math.min(to - chunkStart, chunkResult.size())
+            ));
+        }
+
+        return Optional.of(page);
+    }
+
+    /**
+     * @return cached matched terms of files in chunks which contain requested page,
+     * or empty map if there are no cached terms.
+     */
+    public Map<String, List<String>> getCachedMatchedTermsPage(
+            String key,
+            String cacheName,
+            CachedResultManifest manifest,
+            int from,
+            int to
+    ) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return Map.of();
+        }
+
+        Map<String, List<String>> matchedTerms = new HashMap<>();
+        for (int chunk = from / manifest.chunkSize(); chunk * manifest.chunkSize() < to; chunk++) {
+            // Use wrapper to avoid generics problem
+            Cache.ValueWrapper wrapper = cache.get(chunkKey(key, chunk));
+            if (wrapper != null) {
+                @SuppressWarnings("unchecked")
+                Map<String, List<String>> cached = (Map<String, List<String>>) wrapper.get();
+                if (cached != null) {
+                    matchedTerms.putAll(cached);
+                }
+            }
+        }
+
+        return matchedTerms;
+    }
+
+    /**
+     * @return cached totals of aggregation result entries or empty map if scan has no cached aggregates.
+     */
+    public Map<String, FileScanAggregate> getCachedAggregates(String key, String cacheName) {
         Cache cache = cacheManager.getCache(cacheName);
         if (cache != null) {
             // Use wrapper to avoid generics problem
             Cache.ValueWrapper wrapper = cache.get(key);
             if (wrapper != null) {
                 @SuppressWarnings("unchecked")
-                List<String> cached = (List<String>) wrapper.get();
+                Map<String, FileScanAggregate> cached = (Map<String, FileScanAggregate>) wrapper.get();
                 if (cached != null) {
-                    // Cache exits, return its value
-                    return Optional.of(cached);
+                    return cached;
                 }
             }
         }
 
-        // No cached result found
-        return Optional.empty();
+        return Map.of();
+    }
+
+    private static String chunkKey(String key, int chunk) {
+        return key + "::chunk::" + chunk;
     }
 
     public Optional<String> getCachedKeyByToken(String key, String cacheName) {
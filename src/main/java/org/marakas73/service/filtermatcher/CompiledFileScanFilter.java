@@ -0,0 +1,382 @@
+package org.marakas73.service.filtermatcher;
+
+import jakarta.annotation.Nullable;
+import org.marakas73.common.util.IntervalWrapper;
+import org.marakas73.model.FileScanFilter;
+import org.marakas73.model.ScanEntry;
+import org.marakas73.model.TextContentMatchMode;
+import org.marakas73.service.filtermatcher.content.AhoCorasickAutomaton;
+import org.marakas73.service.filtermatcher.content.CaseInsensitiveBytePattern;
+import org.marakas73.service.filtermatcher.util.GlobMatcher;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Filter plan compiled once per scan and shared by all scan tasks.
+ * Predicates are evaluated from the cheapest to the most expensive one: name, size, modification time, content.
+ */
+public final class CompiledFileScanFilter {
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private static final CompiledFileScanFilter MATCH_ALL = new CompiledFileScanFilter(null, ZoneId.systemDefault());
+
+    private final FileScanFilter source;
+    private final ZoneId zone;
+
+    private final GlobMatcher nameMatcher;
+
+    private final long minSize;
+    private final long maxSize;
+
+    private final boolean hasModifiedDateWindow;
+    private final long modifiedFromMillis; // Inclusive
+    private final long modifiedToMillis; // Exclusive
+
+    private final boolean hasModifiedTimeWindow;
+    private final long timeOfDayFromMillis; // Inclusive
+    private final long timeOfDayToMillis; // Inclusive
+    private final ZoneRules zoneRules;
+    private final long fixedOffsetMillis;
+
+    private final List<String> contentTerms;
+    private final TextContentMatchMode contentMatchMode;
+    private final boolean reportsMatchedTerms;
+    // Single term is searched with byte pattern, multiple terms with one automaton in a single pass
+    private final CaseInsensitiveBytePattern contentPattern;
+    private final AhoCorasickAutomaton contentAutomaton;
+
+    CompiledFileScanFilter(@Nullable FileScanFilter source, ZoneId zone) {
+        this.source = source;
+        this.zone = zone;
+        this.zoneRules = zone.getRules();
+        this.fixedOffsetMillis = zoneRules.isFixedOffset()
+                ? zoneRules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L
+                : 0;
+
+        this.nameMatcher = source == null || source.namePattern() == null
+                ? null
+                : GlobMatcher.compile(source.namePattern());
+
+        IntervalWrapper<Long> sizeInterval = source == null ? null : source.sizeInBytesInterval();
+        this.minSize = sizeInterval == null || sizeInterval.getStart() == null ? Long.MIN_VALUE : sizeInterval.getStart();
+        this.maxSize = sizeInterval == null || sizeInterval.getEnd() == null ? Long.MAX_VALUE : sizeInterval.getEnd();
+
+        IntervalWrapper<LocalDate> dateInterval = source == null ? null : source.lastModifiedDateInterval();
+        this.hasModifiedDateWindow = dateInterval != null;
+        this.modifiedFromMillis = dateInterval == null || dateInterval.getStart() == null
+                ? Long.MIN_VALUE
+                : dateInterval.getStart().atStartOfDay(zone).toInstant().toEpochMilli();
+        this.modifiedToMillis = dateInterval == null || dateInterval.getEnd() == null
+                ? Long.MAX_VALUE
+                : dateInterval.getEnd().plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+        IntervalWrapper<LocalTime> timeInterval = source == null ? null : source.lastModifiedTimeInterval();
+        this.hasModifiedTimeWindow = timeInterval != null;
+        this.timeOfDayFromMillis = timeInterval == null || timeInterval.getStart() == null
+                ? 0
+                : timeInterval.getStart().toNanoOfDay() / NANOS_PER_MILLI;
+        this.timeOfDayToMillis = timeInterval == null || timeInterval.getEnd() == null
+                ? MILLIS_PER_DAY
+                : timeInterval.getEnd().toNanoOfDay() / NANOS_PER_MILLI;
+
+        this.contentTerms = collectContentTerms(source);
+        this.contentMatchMode = source == null || source.textContentMatchMode() == null
+                ? TextContentMatchMode.ANY
+                : source.textContentMatchMode();
+        this.reportsMatchedTerms = source != null && source.textContentTerms() != null;
+        this.contentPattern = contentTerms.size() == 1 ? CaseInsensitiveBytePattern.compile(contentTerms.getFirst()) : null;
+        this.contentAutomaton = contentTerms.size() > 1 ? AhoCorasickAutomaton.compile(contentTerms) : null;
+    }
+
+    public static CompiledFileScanFilter matchAll() {
+        return MATCH_ALL;
+    }
+
+    @Nullable
+    public FileScanFilter getSource() {
+        return source;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public boolean matchesName(ScanEntry entry) {
+        return matchesName(entry.path());
+    }
+
+    public boolean matchesName(Path path) {
+        return nameMatcher == null || nameMatcher.matches(path.getFileName().toString());
+    }
+
+    public boolean matchesSize(ScanEntry entry) {
+        return entry.size() >= minSize && entry.size() <= maxSize;
+    }
+
+    public boolean matchesModificationTime(ScanEntry entry) {
+        long lastModified = entry.lastModifiedMillis();
+        if (hasModifiedDateWindow && (lastModified < modifiedFromMillis || lastModified >= modifiedToMillis)) {
+            return false;
+        }
+        if (hasModifiedTimeWindow) {
+            long offset = zoneRules.isFixedOffset()
+                    ? fixedOffsetMillis
+                    : zoneRules.getOffset(Instant.ofEpochMilli(lastModified)).getTotalSeconds() * 1000L;
+            long timeOfDay = Math.floorMod(lastModified + offset, MILLIS_PER_DAY);
+            return timeOfDay >= timeOfDayFromMillis && timeOfDay <= timeOfDayToMillis;
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if entry passes all predicates which don't need to read file content.
+     */
+    public boolean matchesMetadata(ScanEntry entry) {
+        return matchesName(entry) && matchesSize(entry) && matchesModificationTime(entry);
+    }
+
+    public boolean hasContentPredicate() {
+        return !contentTerms.isEmpty();
+    }
+
+    /**
+     * @return all terms of content predicate, single text content goes first.
+     */
+    public List<String> getContentTerms() {
+        return contentTerms;
+    }
+
+    public TextContentMatchMode getContentMatchMode() {
+        return contentMatchMode;
+    }
+
+    /**
+     * @return {@code true} if matched terms should be reported per file, it's done only for term lists.
+     */
+    public boolean reportsMatchedTerms() {
+        return reportsMatchedTerms;
+    }
+
+    /**
+     * @return compiled single term pattern or {@code null} if content predicate has not exactly one term.
+     */
+    @Nullable
+    public CaseInsensitiveBytePattern getContentPattern() {
+        return contentPattern;
+    }
+
+    /**
+     * @return compiled multi-term automaton or {@code null} if content predicate has less than two terms.
+     */
+    @Nullable
+    public AhoCorasickAutomaton getContentAutomaton() {
+        return contentAutomaton;
+    }
+
+    /**
+     * Canonical form of filter, equivalent filters have the same fingerprint.
+     * Bounds are taken after compilation, so date windows are already resolved in the filter zone.
+     */
+    public String fingerprint() {
+        StringBuilder fingerprint = new StringBuilder();
+        String namePattern = normalizedNamePattern();
+        if (namePattern != null) {
+            fingerprint.append("name=").append(namePattern).append(';');
+        }
+        // File sizes are never negative
+        if (minSize > 0 || maxSize != Long.MAX_VALUE) {
+            fingerprint.append("size=").append(Math.max(minSize, 0)).append("..").append(maxSize).append(';');
+        }
+        if (modifiedFromMillis != Long.MIN_VALUE || modifiedToMillis != Long.MAX_VALUE) {
+            fingerprint.append("modified=").append(modifiedFromMillis).append("..").append(modifiedToMillis).append(';');
+        }
+        if (hasTimeOfDayWindow()) {
+            fingerprint.append("time=").append(timeOfDayFromMillis).append("..").append(timeOfDayToMillis)
+                    .append('@').append(zone.getId()).append(';');
+        }
+        if (!contentTerms.isEmpty()) {
+            // Terms are matched case-insensitively in any order, but reported terms are shown as they were requested
+            List<String> terms = new ArrayList<>(contentTerms);
+            if (!reportsMatchedTerms) {
+                terms.replaceAll(term -> term.toLowerCase(Locale.ROOT));
+            }
+            terms.sort(null);
+            fingerprint.append("content=").append(terms.size() > 1 ? contentMatchMode : TextContentMatchMode.ANY)
+                    .append(reportsMatchedTerms ? ",reported" : "");
+            for (String term : terms) {
+                // Length prefix keeps terms with separators unambiguous
+                fingerprint.append(',').append(term.length()).append(':').append(term);
+            }
+            fingerprint.append(';');
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * @return {@code true} if every file matched by this filter is also matched by the broader one.
+     * Check is conservative, it can return {@code false} for some filters which are actually narrower.
+     */
+    public boolean isNarrowerThan(CompiledFileScanFilter broader) {
+        return isNameNarrowerThan(broader)
+                && Math.max(minSize, 0) >= Math.max(broader.minSize, 0) && maxSize <= broader.maxSize
+                && modifiedFromMillis >= broader.modifiedFromMillis && modifiedToMillis <= broader.modifiedToMillis
+                && isTimeOfDayNarrowerThan(broader)
+                && isContentNarrowerThan(broader);
+    }
+
+    public boolean hasSameNamePredicate(CompiledFileScanFilter other) {
+        return Objects.equals(normalizedNamePattern(), other.normalizedNamePattern());
+    }
+
+    public boolean hasSameSizePredicate(CompiledFileScanFilter other) {
+        return Math.max(minSize, 0) == Math.max(other.minSize, 0) && maxSize == other.maxSize;
+    }
+
+    public boolean hasSameModificationTimePredicate(CompiledFileScanFilter other) {
+        if (modifiedFromMillis != other.modifiedFromMillis || modifiedToMillis != other.modifiedToMillis) {
+            return false;
+        }
+        if (hasTimeOfDayWindow() != other.hasTimeOfDayWindow()) {
+            return false;
+        }
+        return !hasTimeOfDayWindow() || zone.equals(other.zone)
+                && timeOfDayFromMillis == other.timeOfDayFromMillis
+                && timeOfDayToMillis == other.timeOfDayToMillis;
+    }
+
+    public boolean hasSameContentPredicate(CompiledFileScanFilter other) {
+        return lowerCaseContentTerms().equals(other.lowerCaseContentTerms())
+                && requiresAllContentTerms() == other.requiresAllContentTerms();
+    }
+
+    /**
+     * @return {@code true} if found terms satisfy content predicate according to match mode.
+     */
+    public boolean matchesContentTerms(List<String> foundTerms) {
+        return contentMatchMode == TextContentMatchMode.ALL
+                ? foundTerms.size() == contentTerms.size()
+                : !foundTerms.isEmpty();
+    }
+
+    /**
+     * @return name pattern without repeated wildcards or {@code null} if it matches any name.
+     */
+    @Nullable
+    private String normalizedNamePattern() {
+        if (nameMatcher == null) {
+            return null;
+        }
+        String pattern = nameMatcher.getPattern().replaceAll("\\*+", "*");
+        return pattern.equals("*") ? null : pattern;
+    }
+
+    private boolean isNameNarrowerThan(CompiledFileScanFilter broader) {
+        String broaderPattern = broader.normalizedNamePattern();
+        if (broaderPattern == null) {
+            return true;
+        }
+        String pattern = normalizedNamePattern();
+        if (pattern == null) {
+            return false;
+        }
+        if (pattern.equals(broaderPattern)) {
+            return true;
+        }
+
+        String[] broaderSegments = broaderPattern.split("\\*", -1);
+        if (broaderSegments.length != 2) {
+            // Only patterns with a single wildcard are compared by their literal parts
+            return false;
+        }
+        String[] segments = pattern.split("\\*", -1);
+        if (segments.length == 1) {
+            return broader.nameMatcher.matches(pattern);
+        }
+        // Every name starts with the first literal part and ends with the last one
+        return segments[0].startsWith(broaderSegments[0])
+                && segments[segments.length - 1].endsWith(broaderSegments[1]);
+    }
+
+    private boolean hasTimeOfDayWindow() {
+        return hasModifiedTimeWindow && (timeOfDayFromMillis > 0 || timeOfDayToMillis < MILLIS_PER_DAY);
+    }
+
+    private boolean isTimeOfDayNarrowerThan(CompiledFileScanFilter broader) {
+        if (!broader.hasTimeOfDayWindow()) {
+            return true;
+        }
+        // Time of day depends on zone offsets, so windows of different zones are not comparable
+        return hasTimeOfDayWindow() && zone.equals(broader.zone)
+                && timeOfDayFromMillis >= broader.timeOfDayFromMillis
+                && timeOfDayToMillis <= broader.timeOfDayToMillis;
+    }
+
+    private boolean isContentNarrowerThan(CompiledFileScanFilter broader) {
+        if (!broader.hasContentPredicate()) {
+            return true;
+        }
+        if (!hasContentPredicate()) {
+            return false;
+        }
+
+        Set<String> terms = lowerCaseContentTerms();
+        Set<String> broaderTerms = broader.lowerCaseContentTerms();
+        if (broader.requiresAllContentTerms()) {
+            // File has all broader terms only if they all are required too
+            return requiresAllContentTerms() && terms.containsAll(broaderTerms);
+        }
+        if (requiresAllContentTerms()) {
+            // File has all terms, so it has any broader term which is one of them
+            return terms.stream().anyMatch(broaderTerms::contains);
+        }
+        return broaderTerms.containsAll(terms);
+    }
+
+    private boolean requiresAllContentTerms() {
+        return contentTerms.size() == 1 || contentTerms.size() > 1 && contentMatchMode == TextContentMatchMode.ALL;
+    }
+
+    private Set<String> lowerCaseContentTerms() {
+        Set<String> terms = new HashSet<>();
+        for (String term : contentTerms) {
+            terms.add(term.toLowerCase(Locale.ROOT));
+        }
+        return terms;
+    }
+
+    private static List<String> collectContentTerms(@Nullable FileScanFilter source) {
+        if (source == null) {
+            return List.of();
+        }
+
+        // Terms are searched case-insensitively, so duplicates which differ only by case are dropped
+        Set<String> lowerCaseTerms = new LinkedHashSet<>();
+        List<String> terms = new ArrayList<>();
+        List<String> candidates = new ArrayList<>();
+        if (source.textContent() != null) {
+            candidates.add(source.textContent());
+        }
+        if (source.textContentTerms() != null) {
+            candidates.addAll(source.textContentTerms());
+        }
+        for (String term : candidates) {
+            if (term != null && lowerCaseTerms.add(term.toLowerCase())) {
+                terms.add(term);
+            }
+        }
+        return List.copyOf(terms);
+    }
+}
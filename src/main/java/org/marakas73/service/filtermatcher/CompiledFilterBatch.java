@@ -0,0 +1,65 @@
+package org.marakas73.service.filtermatcher;
+
+import jakarta.annotation.Nullable;
+import org.marakas73.service.filtermatcher.content.AhoCorasickAutomaton;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filters matched together in a single walk. Content terms of all filters are merged into one automaton,
+ * so file content is read at most once no matter how many filters have a content predicate.
+ */
+public final class CompiledFilterBatch {
+    private final List<CompiledFileScanFilter> filters;
+    // Union of content terms of all filters, terms which differ only by case are searched once
+    @Nullable
+    private final AhoCorasickAutomaton contentAutomaton;
+    // Index of each filter term in the union automaton
+    private final int[][] termIndexes;
+
+    CompiledFilterBatch(List<CompiledFileScanFilter> filters) {
+        this.filters = List.copyOf(filters);
+        this.termIndexes = new int[this.filters.size()][];
+
+        Map<String, Integer> unionIndexes = new HashMap<>();
+        List<String> unionTerms = new ArrayList<>();
+        for (int i = 0; i < this.filters.size(); i++) {
+            List<String> terms = this.filters.get(i).getContentTerms();
+            termIndexes[i] = new int[terms.size()];
+            for (int j = 0; j < terms.size(); j++) {
+                String term = terms.get(j);
+                termIndexes[i][j] = unionIndexes.computeIfAbsent(term.toLowerCase(), _ -> {
+                    unionTerms.add(term);
+                    return unionTerms.size() - 1;
+                });
+            }
+        }
+        this.contentAutomaton = unionTerms.isEmpty() ? null : AhoCorasickAutomaton.compile(unionTerms);
+    }
+
+    public int size() {
+        return filters.size();
+    }
+
+    public CompiledFileScanFilter getFilter(int index) {
+        return filters.get(index);
+    }
+
+    /**
+     * @return automaton of all content terms or {@code null} if no filter has a content predicate.
+     */
+    @Nullable
+    public AhoCorasickAutomaton getContentAutomaton() {
+        return contentAutomaton;
+    }
+
+    /**
+     * @return indexes of filter content terms in the union automaton, in order of filter terms.
+     */
+    int[] getTermIndexes(int index) {
+        return termIndexes[index];
+    }
+}
@@ -1,123 +1,185 @@
 package org.marakas73.service.filtermatcher;
 
-import org.marakas73.common.util.IntervalWrapper;
+import jakarta.annotation.Nullable;
 import org.marakas73.common.util.SupportedTextFileFormats;
-import org.marakas73.config.FileScannerProperties;
 import org.marakas73.model.FileScanFilter;
-import org.marakas73.service.filtermatcher.util.FileModificationDateTime;
+import org.marakas73.model.ScanEntry;
+import org.marakas73.service.filtermatcher.content.AhoCorasickAutomaton;
+import org.marakas73.service.filtermatcher.content.ContentSearchEngine;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.util.regex.Pattern;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class FileScanFilterMatcher {
-    private final FileScannerProperties properties;
+    private static final int COMPILED_FILTERS_CACHE_SIZE = 256;
 
-    public FileScanFilterMatcher(FileScannerProperties properties) {
-        this.properties = properties;
-    }
+    private final ContentSearchEngine contentSearchEngine;
 
-    public boolean matches(Path filePath, FileScanFilter filter) throws IOException {
-        if(filter == null) {
-            return true;
+    // Compiled plans are reused across scans with an equal filter, eldest one is evicted by access order
+    private final Map<FileScanFilter, CompiledFileScanFilter> compiledFilters = new LinkedHashMap<>(
+            16, 0.75f, true
+    ) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<FileScanFilter, CompiledFileScanFilter> eldest) {
+            return size() > COMPILED_FILTERS_CACHE_SIZE;
         }
+    };
 
-        return matchesByFileNamePattern(filePath, filter.namePattern()) &&
-                matchesByLastModifiedDateInterval(filePath, filter.lastModifiedDateInterval()) &&
-                matchesByLastModifiedTimeInterval(filePath, filter.lastModifiedTimeInterval()) &&
-                matchesByFileSizeInterval(filePath, filter.sizeInBytesInterval()) &&
-                matchesByTextContentPattern(filePath, filter.textContent());
+    public FileScanFilterMatcher(ContentSearchEngine contentSearchEngine) {
+        this.contentSearchEngine = contentSearchEngine;
     }
 
-    private boolean matchesByFileNamePattern(Path filePath, String pattern) {
-        if(pattern == null) {
-            return true;
+    /**
+     * Compiles filter into a plan which can be shared by all scan tasks.
+     * Plans are cached, so scans with an equal filter get the same plan.
+     */
+    public CompiledFileScanFilter compile(FileScanFilter filter) {
+        if(filter == null) {
+            return CompiledFileScanFilter.matchAll();
         }
 
-        String regex = Pattern.quote(pattern).replace("*", "\\E.*\\Q");
-        return filePath.getFileName().toString().matches(regex);
+        ZoneId zone = ZoneId.systemDefault();
+        synchronized (compiledFilters) {
+            CompiledFileScanFilter compiled = compiledFilters.get(filter);
+            if(compiled == null || !compiled.getZone().equals(zone)) {
+                compiled = new CompiledFileScanFilter(filter, zone);
+                compiledFilters.put(filter, compiled);
+            }
+            return compiled;
+        }
     }
 
-    private boolean matchesByFileSizeInterval(Path filePath, IntervalWrapper<Long> interval) {
-        if(interval == null) {
+    /**
+     * Compiles filters which are matched together against each entry of a single walk.
+     */
+    public CompiledFilterBatch compileBatch(List<CompiledFileScanFilter> filters) {
+        return new CompiledFilterBatch(filters);
+    }
+
+    public boolean matches(Path filePath, FileScanFilter filter) throws IOException {
+        if(filter == null) {
             return true;
         }
 
-        File file = filePath.toFile();
-        long fileSize = file.length();
-        if(interval.getStart() != null && fileSize < interval.getStart())
-            return false;
-        return interval.getEnd() == null || fileSize <= interval.getEnd();
+        return matches(ScanEntry.of(filePath, Files.readAttributes(filePath, BasicFileAttributes.class)), filter);
     }
 
-    private boolean matchesByLastModifiedDateInterval(
-            Path filePath,
-            IntervalWrapper<LocalDate> interval
-    ) throws IOException {
-        if(interval == null) {
-            return true;
-        }
+    /**
+     * Same as {@link #matches(Path, FileScanFilter)}, but uses already read entry metadata
+     * so no additional metadata calls are made.
+     */
+    public boolean matches(ScanEntry entry, FileScanFilter filter) {
+        return matches(entry, compile(filter));
+    }
 
-        LocalDate lastModifiedDate = FileModificationDateTime.getLastModifiedDate(filePath);
-        if(interval.getStart() != null && lastModifiedDate.isBefore(interval.getStart()))
-            return false;
-        return interval.getEnd() == null || !lastModifiedDate.isAfter(interval.getEnd());
+    public boolean matches(ScanEntry entry, CompiledFileScanFilter filter) {
+        return match(entry, filter) != null;
     }
 
-    private boolean matchesByLastModifiedTimeInterval(
-            Path filePath,
-            IntervalWrapper<LocalTime> interval
-    ) throws IOException {
-        if(interval == null) {
-            return true;
+    /**
+     * @return {@code null} if entry doesn't match the filter, otherwise content terms found in file
+     * (empty list if filter has no content predicate).
+     */
+    @Nullable
+    public List<String> match(ScanEntry entry, CompiledFileScanFilter filter) {
+        if (!filter.matchesMetadata(entry)) {
+            return null;
         }
-
-        LocalTime lastModifiedTime = FileModificationDateTime.getLastModifiedTime(filePath);
-        if(interval.getStart() != null && lastModifiedTime.isBefore(interval.getStart()))
-            return false;
-        return interval.getEnd() == null || !lastModifiedTime.isAfter(interval.getEnd());
+        return matchByTextContent(entry, filter);
     }
 
-    private boolean matchesByTextContentPattern(Path filePath, String textContent) {
-        if (textContent == null) {
-            return true;
+    /**
+     * Checks only content predicate of the filter, metadata predicates should be checked before.
+     *
+     * @return {@code null} if content doesn't match, otherwise found content terms.
+     */
+    @Nullable
+    public List<String> matchByTextContent(ScanEntry entry, CompiledFileScanFilter filter) {
+        if (!filter.hasContentPredicate()) {
+            return List.of();
         }
 
+        Path filePath = entry.path();
         if (!SupportedTextFileFormats.isTextFile(filePath.getFileName().toString())) {
             // Text content pattern can be applied only for text files
-            return false;
+            return null;
         }
 
         try {
-            long fileSize = Files.size(filePath);
-            textContent = textContent.toLowerCase();
+            List<String> foundTerms;
+            if (filter.getContentAutomaton() != null) {
+                foundTerms = contentSearchEngine.findTerms(filePath, filter.getContentAutomaton());
+            } else {
+                foundTerms = contentSearchEngine.contains(filePath, filter.getContentPattern())
+                        ? filter.getContentTerms()
+                        : List.of();
+            }
+            return filter.matchesContentTerms(foundTerms) ? foundTerms : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
-            // Stream read for small files (lower than stream file size limit)
-            if (fileSize <= properties.getStreamFileSizeLimit()) {
-                String content = Files.readString(filePath, StandardCharsets.UTF_8).toLowerCase();
-                return content.contains(textContent);
+    /**
+     * Matches entry against all not skipped filters of the batch, file content is read at most once.
+     *
+     * @param skipped indexes of filters which don't need to be matched.
+     * @return content terms found in file per filter (empty list if filter has no content predicate),
+     * {@code null} for filters which don't match or are skipped.
+     */
+    public List<List<String>> match(ScanEntry entry, CompiledFilterBatch batch, BitSet skipped) {
+        List<List<String>> found = new ArrayList<>(Collections.nCopies(batch.size(), null));
+        BitSet pendingContent = new BitSet(batch.size());
+        for (int i = skipped.nextClearBit(0); i < batch.size(); i = skipped.nextClearBit(i + 1)) {
+            CompiledFileScanFilter filter = batch.getFilter(i);
+            if (!filter.matchesMetadata(entry)) {
+                continue;
+            }
+            if (filter.hasContentPredicate()) {
+                pendingContent.set(i);
             } else {
-                // Sequence read for bigger files
-                try (BufferedReader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        if (line.toLowerCase().contains(textContent)) {
-                            return true;
-                        }
-                    }
-                    return false;
-                }
+                found.set(i, List.of());
             }
-        } catch (IOException | OutOfMemoryError e) {
-            return false;
         }
+
+        if (pendingContent.isEmpty() || !SupportedTextFileFormats.isTextFile(entry.path().getFileName().toString())) {
+            // Text content pattern can be applied only for text files
+            return found;
+        }
+
+        AhoCorasickAutomaton.Scan scan = batch.getContentAutomaton().newScan();
+        try {
+            contentSearchEngine.scan(entry.path(), scan);
+        } catch (IOException e) {
+            return found;
+        }
+
+        BitSet matchedTerms = scan.getMatched();
+        pendingContent.stream().forEach(i -> {
+            CompiledFileScanFilter filter = batch.getFilter(i);
+            List<String> terms = filter.getContentTerms();
+            int[] termIndexes = batch.getTermIndexes(i);
+            List<String> foundTerms = new ArrayList<>();
+            for (int j = 0; j < termIndexes.length; j++) {
+                if (matchedTerms.get(termIndexes[j])) {
+                    foundTerms.add(terms.get(j));
+                }
+            }
+            if (filter.matchesContentTerms(foundTerms)) {
+                found.set(i, foundTerms);
+            }
+        });
+        return found;
     }
 }
@@ -0,0 +1,212 @@
+package org.marakas73.service.filtermatcher.content;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Case-insensitive multi-term automaton, built once per scan and matched against UTF-8 bytes in a single pass.
+ * Content is decoded on the fly code point by code point without allocations,
+ * ASCII transitions are precomputed into a dense table.
+ */
+public final class AhoCorasickAutomaton {
+    private static final int ASCII_SIZE = 128;
+
+    private final List<String> terms;
+    private final int stateCount;
+    // Dense transitions for ASCII code points
+    private final int[] asciiTransitions;
+    // Sparse trie children for non-ASCII code points
+    private final List<Map<Integer, Integer>> nonAsciiChildren;
+    private final int[] failures;
+    // Indexes of terms which end in state, including the ones reachable by failure links
+    private final int[][] outputs;
+
+    private AhoCorasickAutomaton(List<String> terms) {
+        this.terms = List.copyOf(terms);
+
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<List<Integer>> termOutputs = new ArrayList<>();
+        children.add(new HashMap<>());
+        termOutputs.add(new ArrayList<>());
+
+        // Build trie of lower-cased terms
+        for (int termIndex = 0; termIndex < this.terms.size(); termIndex++) {
+            String term = this.terms.get(termIndex);
+            int state = 0;
+            for (int i = 0; i < term.length(); ) {
+                int codePoint = Character.toLowerCase(term.codePointAt(i));
+                i += Character.charCount(codePoint);
+
+                Integer next = children.get(state).get(codePoint);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(codePoint, next);
+                    children.add(new HashMap<>());
+                    termOutputs.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            termOutputs.get(state).add(termIndex);
+        }
+
+        this.stateCount = children.size();
+        this.failures = new int[stateCount];
+        this.asciiTransitions = new int[stateCount * ASCII_SIZE];
+        this.nonAsciiChildren = new ArrayList<>(stateCount);
+        this.outputs = new int[stateCount][];
+
+        // Breadth-first computation of failure links and dense ASCII transitions
+        Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Integer, Integer> child : children.get(state).entrySet()) {
+                int codePoint = child.getKey();
+                int next = child.getValue();
+                failures[next] = state == 0 ? 0 : transition(children, failures[state], codePoint);
+                termOutputs.get(next).addAll(termOutputs.get(failures[next]));
+                queue.add(next);
+            }
+            for (int c = 0; c < ASCII_SIZE; c++) {
+                Integer next = children.get(state).get(c);
+                asciiTransitions[state * ASCII_SIZE + c] = next != null
+                        ? next
+                        : state == 0 ? 0 : asciiTransitions[failures[state] * ASCII_SIZE + c];
+            }
+        }
+
+        for (int state = 0; state < stateCount; state++) {
+            Map<Integer, Integer> nonAscii = new HashMap<>();
+            children.get(state).forEach((codePoint, next) -> {
+                if (codePoint >= ASCII_SIZE) {
+                    nonAscii.put(codePoint, next);
+                }
+            });
+            nonAsciiChildren.add(nonAscii.isEmpty() ? Map.of() : nonAscii);
+            outputs[state] = termOutputs.get(state).stream().distinct().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static AhoCorasickAutomaton compile(List<String> terms) {
+        return new AhoCorasickAutomaton(terms);
+    }
+
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    public Scan newScan() {
+        return new Scan();
+    }
+
+    // Failure links of all states with lower depth must be already computed
+    private int transition(List<Map<Integer, Integer>> children, int state, int codePoint) {
+        while (true) {
+            Integer next = children.get(state).get(codePoint);
+            if (next != null) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failures[state];
+        }
+    }
+
+    private int nextState(int state, int codePoint) {
+        if (codePoint < ASCII_SIZE) {
+            return asciiTransitions[state * ASCII_SIZE + codePoint];
+        }
+        while (true) {
+            Integer next = nonAsciiChildren.get(state).get(codePoint);
+            if (next != null) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failures[state];
+        }
+    }
+
+    /**
+     * Per-file matching state. Content can be fed in any number of chunks, no overlap between chunks is needed.
+     */
+    public final class Scan implements ContentConsumer {
+        private final BitSet matched = new BitSet(terms.size());
+        private int matchedCount;
+        private int state;
+        // UTF-8 decoding state carried between chunks
+        private int pendingCodePoint;
+        private int pendingBytes;
+
+        @Override
+        public int overlap() {
+            return 0;
+        }
+
+        @Override
+        public boolean consume(ByteBuffer buffer, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int b = buffer.get(i) & 0xFF;
+
+                int codePoint;
+                if (pendingBytes > 0 && (b & 0xC0) == 0x80) {
+                    pendingCodePoint = (pendingCodePoint << 6) | (b & 0x3F);
+                    if (--pendingBytes > 0) {
+                        continue;
+                    }
+                    codePoint = Character.toLowerCase(pendingCodePoint);
+                } else if (b < 0x80) {
+                    pendingBytes = 0;
+                    codePoint = b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+                } else {
+                    if (b >= 0xF0) {
+                        pendingCodePoint = b & 0x07;
+                        pendingBytes = 3;
+                    } else if (b >= 0xE0) {
+                        pendingCodePoint = b & 0x0F;
+                        pendingBytes = 2;
+                    } else if (b >= 0xC0) {
+                        pendingCodePoint = b & 0x1F;
+                        pendingBytes = 1;
+                    } else {
+                        // Malformed sequence, restart matching
+                        pendingBytes = 0;
+                        state = 0;
+                    }
+                    continue;
+                }
+
+                state = nextState(state, codePoint);
+                for (int termIndex : outputs[state]) {
+                    if (!matched.get(termIndex)) {
+                        matched.set(termIndex);
+                        matchedCount++;
+                    }
+                }
+                if (matchedCount == terms.size()) {
+                    // All terms found, no need to read further
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public BitSet getMatched() {
+            return matched;
+        }
+
+        public List<String> getMatchedTerms() {
+            List<String> matchedTerms = new ArrayList<>(matched.cardinality());
+            matched.stream().forEach(termIndex -> matchedTerms.add(terms.get(termIndex)));
+            return matchedTerms;
+        }
+    }
+}
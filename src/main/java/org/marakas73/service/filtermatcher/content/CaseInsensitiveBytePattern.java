@@ -0,0 +1,161 @@
+package org.marakas73.service.filtermatcher.content;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Case-insensitive literal searched directly in UTF-8 bytes with Boyer-Moore-Horspool algorithm.
+ * Each character of the literal accepts all its case variants which have the same UTF-8 length,
+ * so no decoding of the searched content is needed.
+ */
+public final class CaseInsensitiveBytePattern {
+    private final String literal;
+    private final int length;
+    // Allowed bytes on each position of the pattern
+    private final boolean[][] allowed;
+    // Horspool bad character shifts
+    private final int[] shifts = new int[256];
+    // Per character byte alternatives with their offsets, used to verify candidate windows
+    private final int[] unitOffsets;
+    private final byte[][][] unitAlternatives;
+
+    private CaseInsensitiveBytePattern(String literal) {
+        this.literal = literal;
+
+        List<byte[][]> units = new ArrayList<>();
+        int totalLength = 0;
+        for (int i = 0; i < literal.length(); ) {
+            int codePoint = literal.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            byte[][] alternatives = caseAlternatives(codePoint);
+            units.add(alternatives);
+            totalLength += alternatives[0].length;
+        }
+
+        this.length = totalLength;
+        this.allowed = new boolean[totalLength][256];
+        this.unitOffsets = new int[units.size()];
+        this.unitAlternatives = units.toArray(new byte[0][][]);
+
+        int offset = 0;
+        for (int u = 0; u < unitAlternatives.length; u++) {
+            unitOffsets[u] = offset;
+            for (byte[] alternative : unitAlternatives[u]) {
+                for (int b = 0; b < alternative.length; b++) {
+                    allowed[offset + b][alternative[b] & 0xFF] = true;
+                }
+            }
+            offset += unitAlternatives[u][0].length;
+        }
+
+        for (int b = 0; b < 256; b++) {
+            shifts[b] = totalLength;
+        }
+        for (int position = 0; position < totalLength - 1; position++) {
+            for (int b = 0; b < 256; b++) {
+                if (allowed[position][b]) {
+                    shifts[b] = totalLength - 1 - position;
+                }
+            }
+        }
+    }
+
+    public static CaseInsensitiveBytePattern compile(String literal) {
+        return new CaseInsensitiveBytePattern(literal);
+    }
+
+    public String getLiteral() {
+        return literal;
+    }
+
+    /**
+     * @return length of the pattern in bytes.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Searches pattern in buffer between {@code from} (inclusive) and {@code to} (exclusive) absolute indexes.
+     *
+     * @return absolute index of the first match or {@code -1} if there is no match.
+     */
+    public int indexOf(ByteBuffer buffer, int from, int to) {
+        if (length == 0) {
+            return from;
+        }
+
+        int last = length - 1;
+        boolean[] allowedLast = allowed[last];
+        int position = from;
+        while (position <= to - length) {
+            int b = buffer.get(position + last) & 0xFF;
+            if (allowedLast[b] && matchesAt(buffer, position)) {
+                return position;
+            }
+            position += shifts[b];
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(ByteBuffer buffer, int position) {
+        for (int u = 0; u < unitAlternatives.length; u++) {
+            if (!unitMatchesAt(buffer, position + unitOffsets[u], unitAlternatives[u])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean unitMatchesAt(ByteBuffer buffer, int position, byte[][] alternatives) {
+        for (byte[] alternative : alternatives) {
+            boolean equal = true;
+            for (int b = 0; b < alternative.length; b++) {
+                if (buffer.get(position + b) != alternative[b]) {
+                    equal = false;
+                    break;
+                }
+            }
+            if (equal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[][] caseAlternatives(int codePoint) {
+        int lower = Character.toLowerCase(codePoint);
+        byte[] lowerBytes = encode(lower);
+
+        // Only variants which lower-case to the same character and have the same encoded length are used,
+        // fixed pattern length is required by the search algorithm
+        Set<Integer> variants = new LinkedHashSet<>();
+        variants.add(lower);
+        variants.add(codePoint);
+        variants.add(Character.toUpperCase(lower));
+        variants.add(Character.toUpperCase(codePoint));
+        variants.add(Character.toTitleCase(codePoint));
+
+        List<byte[]> alternatives = new ArrayList<>();
+        alternatives.add(lowerBytes);
+        for (int variant : variants) {
+            if (variant == lower || Character.toLowerCase(variant) != lower) {
+                continue;
+            }
+            byte[] bytes = encode(variant);
+            if (bytes.length == lowerBytes.length) {
+                alternatives.add(bytes);
+            }
+        }
+        return alternatives.toArray(new byte[0][]);
+    }
+
+    private static byte[] encode(int codePoint) {
+        return new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,20 @@
+package org.marakas73.service.filtermatcher.content;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives file content chunk by chunk from {@link ContentSearchEngine}.
+ */
+public interface ContentConsumer {
+    /**
+     * @return count of bytes from the end of previous chunk which must be passed again with the next one.
+     */
+    int overlap();
+
+    /**
+     * Consumes buffer content between {@code from} (inclusive) and {@code to} (exclusive) absolute indexes.
+     *
+     * @return {@code true} if no more content is needed.
+     */
+    boolean consume(ByteBuffer buffer, int from, int to);
+}
@@ -0,0 +1,153 @@
+package org.marakas73.service.filtermatcher.content;
+
+import org.marakas73.config.FileScannerProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Searches literals in file content without decoding it.
+ * Small files are read through pooled direct buffers, bigger ones are memory-mapped window by window,
+ * so heap usage doesn't depend on file size or line length.
+ */
+@Component
+public class ContentSearchEngine {
+    private static final int MAX_MAP_WINDOW_SIZE = 64 * 1024 * 1024; // 64 MB
+
+    private final FileScannerProperties properties;
+    private final BlockingQueue<ByteBuffer> bufferPool;
+
+    public ContentSearchEngine(FileScannerProperties properties) {
+        this.properties = properties;
+        this.bufferPool = new ArrayBlockingQueue<>(Math.max(1, properties.getPoolSize() * 2));
+    }
+
+    /**
+     * @return {@code true} if file content contains the pattern.
+     */
+    public boolean contains(Path filePath, CaseInsensitiveBytePattern pattern) throws IOException {
+        if (pattern.length() == 0) {
+            return true;
+        }
+
+        PatternConsumer consumer = new PatternConsumer(pattern);
+        scan(filePath, consumer);
+        return consumer.found;
+    }
+
+    /**
+     * Reads file once and matches all automaton terms against its content.
+     *
+     * @return terms found in file content, in order of automaton terms.
+     */
+    public List<String> findTerms(Path filePath, AhoCorasickAutomaton automaton) throws IOException {
+        AhoCorasickAutomaton.Scan scan = automaton.newScan();
+        scan(filePath, scan);
+        return scan.getMatchedTerms();
+    }
+
+    /**
+     * Feeds whole file content to consumer until it reports that no more content is needed.
+     */
+    public void scan(Path filePath, ContentConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+
+            if (size > properties.getContentMapThreshold()) {
+                scanMapped(channel, size, consumer);
+            } else {
+                scanBuffered(channel, consumer);
+            }
+        }
+    }
+
+    private void scanMapped(FileChannel channel, long size, ContentConsumer consumer) throws IOException {
+        // Windows overlap to let consumer find matches on window borders
+        int overlap = consumer.overlap();
+        int windowSize = Math.max(MAX_MAP_WINDOW_SIZE, overlap * 2 + 1);
+
+        long position = 0;
+        while (position < size) {
+            int length = (int) Math.min(windowSize, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            boolean done;
+            try {
+                done = consumer.consume(window, 0, length);
+            } catch (InternalError e) {
+                // Access to mapped pages beyond the end of file truncated while it's read (e.g. rotated log)
+                // raises an error instead of IOException, file is treated as unreadable like on read failure
+                throw new IOException("File is truncated while it's read", e);
+            }
+            if (done || position + length >= size) {
+                return;
+            }
+            position += length - overlap;
+        }
+    }
+
+    private void scanBuffered(FileChannel channel, ContentConsumer consumer) throws IOException {
+        int overlap = consumer.overlap();
+        ByteBuffer buffer = acquireBuffer(overlap);
+        try {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                if (consumer.consume(buffer, 0, buffer.limit())) {
+                    return;
+                }
+
+                // Keep tail of the chunk to let consumer find matches on chunk borders
+                buffer.position(buffer.limit() - Math.min(overlap, buffer.limit()));
+                buffer.compact();
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    private ByteBuffer acquireBuffer(int overlap) {
+        int capacity = Math.max(properties.getContentBufferSize(), overlap * 2 + 1);
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null || buffer.capacity() < capacity) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        return buffer.clear();
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        if (buffer.capacity() == properties.getContentBufferSize()) {
+            // Pool is bounded, extra buffers are left to GC
+            bufferPool.offer(buffer.clear());
+        }
+    }
+
+    private static final class PatternConsumer implements ContentConsumer {
+        private final CaseInsensitiveBytePattern pattern;
+        private boolean found;
+
+        private PatternConsumer(CaseInsensitiveBytePattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public int overlap() {
+            return pattern.length() - 1;
+        }
+
+        @Override
+        public boolean consume(ByteBuffer buffer, int from, int to) {
+            found = pattern.indexOf(buffer, from, to) >= 0;
+            return found;
+        }
+    }
+}
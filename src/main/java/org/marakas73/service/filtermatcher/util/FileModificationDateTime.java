@@ -3,23 +3,29 @@ package org.marakas73.service.filtermatcher.util;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.attribute.FileTime;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 
 public class FileModificationDateTime {
     public static LocalDate getLastModifiedDate(Path filePath) throws IOException {
-        FileTime fileTime = Files.getLastModifiedTime(filePath);
-        return fileTime.toInstant()
+        return getLastModifiedDate(Files.getLastModifiedTime(filePath).toMillis());
+    }
+
+    public static LocalTime getLastModifiedTime(Path filePath) throws IOException {
+        return getLastModifiedTime(Files.getLastModifiedTime(filePath).toMillis());
+    }
+
+    public static LocalDate getLastModifiedDate(long lastModifiedMillis) {
+        return Instant.ofEpochMilli(lastModifiedMillis)
                 .atZone(ZoneId.systemDefault())
                 .toLocalDate();
     }
 
-    public static LocalTime getLastModifiedTime(Path filePath) throws IOException {
-        FileTime fileTime = Files.getLastModifiedTime(filePath);
-        return fileTime.toInstant()
+    public static LocalTime getLastModifiedTime(long lastModifiedMillis) {
+        return Instant.ofEpochMilli(lastModifiedMillis)
                 .atZone(ZoneId.systemDefault())
                 .toLocalTime();
     }
-}
\ No newline at end of file
+}
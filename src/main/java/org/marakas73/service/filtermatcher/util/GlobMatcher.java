@@ -0,0 +1,64 @@
+package org.marakas73.service.filtermatcher.util;
+
+/**
+ * Precompiled file name glob where {@code *} matches any sequence of characters and everything else is literal.
+ * Matching is done with plain string operations, without regex engine.
+ */
+public final class GlobMatcher {
+    private final String pattern;
+    private final String[] segments;
+    private final int minLength;
+
+    private GlobMatcher(String pattern) {
+        this.pattern = pattern;
+        this.segments = pattern.split("\\*", -1);
+
+        int length = 0;
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        this.minLength = length;
+    }
+
+    public static GlobMatcher compile(String pattern) {
+        return new GlobMatcher(pattern);
+    }
+
+    public boolean matches(String name) {
+        if (segments.length == 1) {
+            // No wildcards, exact match
+            return name.equals(pattern);
+        }
+        if (name.length() < minLength) {
+            return false;
+        }
+
+        String prefix = segments[0];
+        String suffix = segments[segments.length - 1];
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return false;
+        }
+
+        // Middle segments are searched leftmost-first between prefix and suffix
+        int from = prefix.length();
+        int to = name.length() - suffix.length();
+        for (int i = 1; i < segments.length - 1; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty()) {
+                continue;
+            }
+
+            int index = name.indexOf(segment, from);
+            if (index < 0 || index + segment.length() > to) {
+                return false;
+            }
+            from = index + segment.length();
+        }
+
+        return true;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+}
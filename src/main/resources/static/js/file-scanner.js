@@ -11,7 +11,7 @@ document.addEventListener('DOMContentLoaded', () => {
   const resultsBody = resultsTable.querySelector('tbody');
   const errorBox = document.getElementById('error');
 
-  let token = null, timerInterval = null, elapsed = 0, foundCount = 0;
+  let token = null, timerInterval = null, pollTimeout = null, elapsed = 0, foundCount = 0, cursor = 0;
 
   form.addEventListener('submit', async e => {
     e.preventDefault();
@@ -36,7 +36,9 @@ document.addEventListener('DOMContentLoaded', () => {
           ? { start: form.timeStart.value || null,
               end: form.timeEnd.value || null }
           : null,
-        textContent: form.textContent.value.trim() || null
+        textContent: form.textContent.value.trim() || null,
+        textContentTerms: parseTerms(form.textContentTerms.value),
+        textContentMatchMode: form.textContentMatchMode.value
       }
     };
 
@@ -83,50 +85,58 @@ document.addEventListener('DOMContentLoaded', () => {
 
   async function poll() {
     try {
-      const res = await fetch(`/api/file-scanner/scan/${token}`, { headers: buildHeaders() });
+      const res = await fetch(`/api/file-scanner/scan/${token}?cursor=${cursor}`, { headers: buildHeaders() });
       const json = await res.json();
       if (!res.ok && res.status !== 202) throw new Error(res.statusText);
 
       const dto = json.data;
-      updateResults(dto.result || []);
+      appendResults(dto.result || [], dto.matchedTerms || {});
+      cursor = dto.nextCursor;
       if (dto.completed) {
         stopScanning('Scan completed.');
       } else {
-        setInterval(poll, 1500);
+        pollTimeout = setTimeout(poll, 1500);
       }
     } catch (err) {
       stopScanning(`Polling error: ${err.message}`);
     }
   }
 
-  function updateResults(list) {
-    if (list.length > foundCount) {
-      list.slice(foundCount).forEach((path, i) => {
+  function appendResults(list, matchedTerms) {
+    if (list.length > 0) {
+      list.forEach((path, i) => {
         const row = resultsBody.insertRow();
         row.insertCell().textContent = foundCount + i + 1;
         row.insertCell().textContent = path;
+        row.insertCell().textContent = (matchedTerms[path] || []).join(', ');
       });
-      foundCount = list.length;
+      foundCount += list.length;
       countEl.textContent = `Found: ${foundCount}`;
       resultsTable.classList.remove('hidden');
     }
   }
 
+  function parseTerms(value) {
+    const terms = value.split(',').map(t => t.trim()).filter(t => t.length > 0);
+    return terms.length > 0 ? terms : null;
+  }
+
   function stopScanning(msg) {
     clearInterval(timerInterval);
+    clearTimeout(pollTimeout);
     spinner.classList.add('hidden');
     showError(msg);
     toggleForm(false);
   }
 
   function toggleForm(disable) {
-    Array.from(form.elements).forEach(el => { if (el.tagName==='INPUT') el.disabled = disable; });
+    Array.from(form.elements).forEach(el => { if (el.tagName==='INPUT' || el.tagName==='SELECT') el.disabled = disable; });
     startBtn.disabled = disable;
     cancelBtn.disabled = !disable;
   }
 
   function resetUI() {
-    elapsed = foundCount = 0;
+    elapsed = foundCount = cursor = 0;
     timerEl.textContent = '00:00';
     countEl.textContent = 'Found: 0';
     infoBar.classList.add('hidden');
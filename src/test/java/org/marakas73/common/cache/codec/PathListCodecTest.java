@@ -0,0 +1,123 @@
+package org.marakas73.common.cache.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathListCodecTest {
+
+    @Test
+    void emptyListRoundTrips() {
+        assertRoundTrip(List.of());
+    }
+
+    @Test
+    void sortedPathsRoundTrip() {
+        List<String> paths = paths(1000);
+        Collections.sort(paths);
+        assertRoundTrip(paths);
+    }
+
+    @Test
+    void unsortedPathsKeepTheirOrder() {
+        List<String> paths = paths(1000);
+        Collections.shuffle(paths, new Random(42));
+        assertRoundTrip(paths);
+    }
+
+    @Test
+    void pathsAcrossRestartIntervalsRoundTrip() {
+        for (int count : new int[] {
+                1,
+                PathListCodec.RESTART_INTERVAL - 1,
+                PathListCodec.RESTART_INTERVAL,
+                PathListCodec.RESTART_INTERVAL + 1,
+                PathListCodec.RESTART_INTERVAL * 3 + 5
+        }) {
+            assertRoundTrip(paths(count));
+        }
+    }
+
+    @Test
+    void duplicateAndPrefixPathsRoundTrip() {
+        assertRoundTrip(List.of(
+                "/data/b.txt",
+                "/data",
+                "/data/b.txt",
+                "",
+                "/data/b.txt.bak",
+                "/data/a.txt",
+                "/data"
+        ));
+    }
+
+    @Test
+    void unicodePathsRoundTrip() {
+        assertRoundTrip(List.of(
+                "/home/user/документы/отчёт.txt",
+                "/home/user/文件/报告.txt",
+                "/home/user/ümlaut/ß.txt",
+                "/home/user/emoji/😀.txt",
+                "/home/user/a.txt"
+        ));
+    }
+
+    @Test
+    void encodingIsAbortedWhenLimitIsExceeded() {
+        List<String> paths = paths(1000);
+        byte[] encoded = PathListCodec.encode(paths, false);
+
+        assertNull(PathListCodec.encode(paths, false, encoded.length - 1));
+        byte[] bounded = PathListCodec.encode(paths, false, encoded.length);
+        assertNotNull(bounded);
+        assertEquals(paths, PathListCodec.decode(bounded));
+    }
+
+    @Test
+    void encodedBytesAreRecognized() {
+        assertTrue(PathListCodec.isEncoded(PathListCodec.encode(paths(10))));
+        assertTrue(PathListCodec.isEncoded(PathListCodec.encode(List.of())));
+        assertFalse(PathListCodec.isEncoded(null));
+        assertFalse(PathListCodec.isEncoded(new byte[0]));
+        assertFalse(PathListCodec.isEncoded("[\"/data/a.txt\"]".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void decodingOfNotEncodedBytesFails() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> PathListCodec.decode("[\"/data/a.txt\"]".getBytes(StandardCharsets.UTF_8))
+        );
+    }
+
+    private static void assertRoundTrip(List<String> paths) {
+        for (boolean deflate : new boolean[] {false, true}) {
+            CompactPathList decoded = PathListCodec.decode(PathListCodec.encode(paths, deflate));
+
+            assertEquals(paths.size(), decoded.size());
+            for (int i = 0; i < paths.size(); i++) {
+                assertEquals(paths.get(i), decoded.get(i), "Path at " + i + ", deflate " + deflate);
+            }
+            assertEquals(paths, decoded);
+        }
+    }
+
+    private static List<String> paths(int count) {
+        List<String> paths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            paths.add("/data/project-" + (i % 7) + "/src/dir-" + (i % 13) + "/file-" + i + ".txt");
+        }
+        return paths;
+    }
+}
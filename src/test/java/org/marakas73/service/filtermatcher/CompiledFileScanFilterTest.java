@@ -0,0 +1,157 @@
+package org.marakas73.service.filtermatcher;
+
+import org.junit.jupiter.api.Test;
+import org.marakas73.common.util.IntervalWrapper;
+import org.marakas73.model.FileScanFilter;
+import org.marakas73.model.TextContentMatchMode;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledFileScanFilterTest {
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    @Test
+    void nameWithLongerLiteralPartsIsNarrower() {
+        assertTrue(name("report*.txt").isNarrowerThan(name("*.txt")));
+        assertTrue(name("report*.txt").isNarrowerThan(name("rep*")));
+        assertTrue(name("a*b*c").isNarrowerThan(name("a*c")));
+        assertTrue(name("abc*xyz").isNarrowerThan(name("ab*yz")));
+    }
+
+    @Test
+    void nameWithDifferentLiteralPartsIsNotNarrower() {
+        assertFalse(name("*.log").isNarrowerThan(name("*.txt")));
+        assertFalse(name("*.txt").isNarrowerThan(name("report*.txt")));
+        assertFalse(name("a*").isNarrowerThan(name("ab*")));
+        assertFalse(name("ab*").isNarrowerThan(name("a*b")));
+        assertFalse(name("a*c").isNarrowerThan(name("a*b*c")));
+    }
+
+    @Test
+    void literalNameIsNarrowerOnlyIfBroaderPatternMatchesIt() {
+        assertTrue(name("report.txt").isNarrowerThan(name("*.txt")));
+        assertTrue(name("report.txt").isNarrowerThan(name("report.txt")));
+        assertFalse(name("report.log").isNarrowerThan(name("*.txt")));
+        // Prefix and suffix of the broader pattern can't overlap in a matched name
+        assertFalse(name("aba").isNarrowerThan(name("ab*ba")));
+    }
+
+    @Test
+    void repeatedWildcardsAreIgnored() {
+        assertTrue(name("report**.txt").isNarrowerThan(name("*.txt")));
+        assertTrue(name("report*.txt").isNarrowerThan(name("***.txt")));
+    }
+
+    @Test
+    void anyNameIsNarrowerOnlyThanAnyName() {
+        assertTrue(name("report*.txt").isNarrowerThan(name(null)));
+        assertTrue(name("report*.txt").isNarrowerThan(name("*")));
+        assertTrue(name("*").isNarrowerThan(name(null)));
+        assertFalse(name(null).isNarrowerThan(name("*.txt")));
+        assertFalse(name("*").isNarrowerThan(name("*.txt")));
+    }
+
+    @Test
+    void allTermsAreNarrowerThanAnyOfThem() {
+        assertTrue(content(List.of("foo", "bar"), TextContentMatchMode.ALL)
+                .isNarrowerThan(content(List.of("foo", "baz"), TextContentMatchMode.ANY)));
+        assertTrue(content(List.of("foo", "bar"), TextContentMatchMode.ALL)
+                .isNarrowerThan(content(List.of("foo"), TextContentMatchMode.ANY)));
+        assertFalse(content(List.of("foo", "bar"), TextContentMatchMode.ALL)
+                .isNarrowerThan(content(List.of("baz", "qux"), TextContentMatchMode.ANY)));
+    }
+
+    @Test
+    void allTermsAreNarrowerThanTheirSubset() {
+        assertTrue(content(List.of("foo", "bar", "baz"), TextContentMatchMode.ALL)
+                .isNarrowerThan(content(List.of("foo", "bar"), TextContentMatchMode.ALL)));
+        assertFalse(content(List.of("foo", "bar"), TextContentMatchMode.ALL)
+                .isNarrowerThan(content(List.of("foo", "bar", "baz"), TextContentMatchMode.ALL)));
+        assertFalse(content(List.of("foo", "bar"), TextContentMatchMode.ANY)
+                .isNarrowerThan(content(List.of("foo", "bar"), TextContentMatchMode.ALL)));
+    }
+
+    @Test
+    void anyTermsAreNarrowerThanTheirSuperset() {
+        assertTrue(content(List.of("foo", "bar"), TextContentMatchMode.ANY)
+                .isNarrowerThan(content(List.of("foo", "bar", "baz"), TextContentMatchMode.ANY)));
+        assertFalse(content(List.of("foo", "bar", "baz"), TextContentMatchMode.ANY)
+                .isNarrowerThan(content(List.of("foo", "bar"), TextContentMatchMode.ANY)));
+    }
+
+    @Test
+    void singleTermIsComparedAsRequired() {
+        assertTrue(content(List.of("foo"), TextContentMatchMode.ANY)
+                .isNarrowerThan(content(List.of("foo", "bar"), TextContentMatchMode.ANY)));
+        assertTrue(content(List.of("foo", "bar"), TextContentMatchMode.ALL)
+                .isNarrowerThan(content(List.of("foo"), TextContentMatchMode.ANY)));
+        assertFalse(content(List.of("foo", "bar"), TextContentMatchMode.ANY)
+                .isNarrowerThan(content(List.of("foo"), TextContentMatchMode.ANY)));
+    }
+
+    @Test
+    void termsAreComparedCaseInsensitively() {
+        assertTrue(content(List.of("FOO", "Bar"), TextContentMatchMode.ALL)
+                .isNarrowerThan(content(List.of("foo", "bar"), TextContentMatchMode.ALL)));
+    }
+
+    @Test
+    void anyContentIsNarrowerOnlyThanAnyContent() {
+        assertTrue(content(List.of("foo"), TextContentMatchMode.ANY).isNarrowerThan(name(null)));
+        assertFalse(name(null).isNarrowerThan(content(List.of("foo"), TextContentMatchMode.ANY)));
+    }
+
+    @Test
+    void timeOfDayWindowInsideBroaderWindowIsNarrower() {
+        assertTrue(time("10:00", "12:00", UTC).isNarrowerThan(time("09:00", "18:00", UTC)));
+        assertTrue(time("09:00", "18:00", UTC).isNarrowerThan(time("09:00", "18:00", UTC)));
+        assertTrue(time("10:00", "12:00", UTC).isNarrowerThan(time(null, "12:00", UTC)));
+        assertTrue(time("10:00", "12:00", UTC).isNarrowerThan(time("10:00", null, UTC)));
+        assertTrue(time("10:00", "12:00", UTC).isNarrowerThan(name(null)));
+    }
+
+    @Test
+    void timeOfDayWindowOutsideBroaderWindowIsNotNarrower() {
+        assertFalse(time("08:00", "12:00", UTC).isNarrowerThan(time("09:00", "18:00", UTC)));
+        assertFalse(time("10:00", "19:00", UTC).isNarrowerThan(time("09:00", "18:00", UTC)));
+        assertFalse(time(null, "12:00", UTC).isNarrowerThan(time("09:00", "18:00", UTC)));
+        assertFalse(name(null).isNarrowerThan(time("09:00", "18:00", UTC)));
+    }
+
+    @Test
+    void timeOfDayWindowsOfDifferentZonesAreNotComparable() {
+        ZoneId zone = ZoneId.of("Europe/Berlin");
+        assertFalse(time("10:00", "12:00", zone).isNarrowerThan(time("09:00", "18:00", UTC)));
+        assertTrue(time("10:00", "12:00", zone).isNarrowerThan(time("09:00", "18:00", zone)));
+    }
+
+    private static CompiledFileScanFilter name(String namePattern) {
+        return new CompiledFileScanFilter(
+                new FileScanFilter(namePattern, null, null, null, null, null, null),
+                UTC
+        );
+    }
+
+    private static CompiledFileScanFilter content(List<String> terms, TextContentMatchMode matchMode) {
+        return new CompiledFileScanFilter(
+                new FileScanFilter(null, null, null, null, null, terms, matchMode),
+                UTC
+        );
+    }
+
+    private static CompiledFileScanFilter time(String start, String end, ZoneId zone) {
+        IntervalWrapper<LocalTime> interval = new IntervalWrapper<>(
+                start == null ? null : LocalTime.parse(start),
+                end == null ? null : LocalTime.parse(end)
+        );
+        return new CompiledFileScanFilter(
+                new FileScanFilter(null, null, null, interval, null, null, null),
+                zone
+        );
+    }
+}